@@ -1,5 +1,6 @@
 package com.nisarg.agentic.demo.controller;
 
+import com.nisarg.agentic.demo.model.AgentEvent;
 import com.nisarg.agentic.demo.model.ChatRequest;
 import com.nisarg.agentic.demo.service.AgentService;
 import org.springframework.http.MediaType;
@@ -7,6 +8,8 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
@@ -19,7 +22,10 @@ public class ChatController {
 
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatStream(@RequestBody ChatRequest request) {
-        return agentService.chatStream(request.getUserId(), request.getPrompt())
-                .map(event -> ServerSentEvent.builder(event).build());
+        Flux<AgentEvent> events = agentService.chatStream(request.getUserId(), request.getPrompt());
+        if (request.getPaceMillis() > 0) {
+            events = events.delayElements(Duration.ofMillis(request.getPaceMillis()));
+        }
+        return events.map(event -> ServerSentEvent.builder(event.data()).event(event.type()).build());
     }
 }
\ No newline at end of file
@@ -1,17 +1,128 @@
 package com.nisarg.agentic.demo.gemini;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.ClientOptions;
+import com.google.genai.types.Content;
+import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.GenerateContentResponseUsageMetadata;
+import com.google.genai.types.HttpOptions;
+import com.google.genai.types.Part;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+/**
+ * The agents' LLM. One SDK {@link Client}, and so one HTTP client with its
+ * connection pool, is shared by all chats; it is thread-safe, created on
+ * first use and closed on shutdown. Kept-alive connections are reused
+ * across calls instead of a new client (and TLS handshake) per call.
+ *
+ * Configured from the environment: {@code GEMINI_MODEL},
+ * {@code GEMINI_TIMEOUT_MS} (connect/read/write timeout of each call),
+ * {@code GEMINI_MAX_CONNECTIONS} (concurrent requests, also per host) and
+ * {@code GEMINI_BASE_URL}, which points the client at another endpoint,
+ * e.g. a local stub for load testing.
+ *
+ * The static head of the ReAct prompt (instructions and tool list) is built
+ * once per tool catalog and sent as the system instruction, so it is the
+ * same leading text on every step. With {@code GEMINI_CONTEXT_CACHE=true} it
+ * is uploaded once as cached content instead (kept for
+ * {@code GEMINI_CONTEXT_CACHE_TTL_SECONDS}, default an hour) and steps pay
+ * only for the suffix.
+ */
 @Component
 public class GeminiClient {
-    private static final String API_KEY = System.getenv("GEMINI_API_KEY");
-    private static final String MODEL = System.getenv().getOrDefault("GEMINI_MODEL", "gemini-pro");
-    
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+
+    private static final GenerateContentConfig RESPOND_CONFIG = GenerateContentConfig.builder()
+            .systemInstruction(Content.fromParts(Part.fromText(
+                    "You are an assistant. Provide a concise, user-facing final answer in plain text.")))
+            .build();
+
+    private final String apiKey;
+    private final String model;
+    private final String baseUrl;
+    private final int timeoutMillis;
+    private final int maxConnections;
+    private final PromptPrefixCache prefixes;
+    private volatile Client client;
+
+    public GeminiClient() {
+        this(System.getenv("GEMINI_API_KEY"),
+                System.getenv().getOrDefault("GEMINI_MODEL", "gemini-2.0-flash"),
+                System.getenv("GEMINI_BASE_URL"),
+                Integer.parseInt(System.getenv().getOrDefault("GEMINI_TIMEOUT_MS", "60000")),
+                Integer.parseInt(System.getenv().getOrDefault("GEMINI_MAX_CONNECTIONS", "256")),
+                Boolean.parseBoolean(System.getenv().getOrDefault("GEMINI_CONTEXT_CACHE", "false")),
+                Duration.ofSeconds(Long.parseLong(
+                        System.getenv().getOrDefault("GEMINI_CONTEXT_CACHE_TTL_SECONDS", "3600"))));
+    }
+
+    /**
+     * @param baseUrl null for the public Gemini API
+     */
+    public GeminiClient(String apiKey, String model, String baseUrl, int timeoutMillis, int maxConnections) {
+        this(apiKey, model, baseUrl, timeoutMillis, maxConnections, false, Duration.ofHours(1));
+    }
+
+    /**
+     * @param contextCache upload each ReAct prompt prefix as cached content
+     * @param contextCacheTtl how long the server keeps it
+     */
+    public GeminiClient(String apiKey, String model, String baseUrl, int timeoutMillis, int maxConnections,
+            boolean contextCache, Duration contextCacheTtl) {
+        this.apiKey = apiKey;
+        this.model = model;
+        this.baseUrl = baseUrl;
+        this.timeoutMillis = timeoutMillis;
+        this.maxConnections = maxConnections;
+        this.prefixes = new PromptPrefixCache(contextCache, contextCacheTtl);
+    }
+
+    /** The shared SDK client; built lazily so the app starts without credentials. */
+    private Client client() {
+        Client current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    HttpOptions.Builder http = HttpOptions.builder().timeout(timeoutMillis);
+                    if (baseUrl != null && !baseUrl.isBlank()) {
+                        http.baseUrl(baseUrl);
+                    }
+                    current = Client.builder()
+                            .apiKey(apiKey)
+                            .httpOptions(http.build())
+                            // OkHttp dispatcher limits; the default of 5 per host would queue concurrent chats
+                            .clientOptions(ClientOptions.builder()
+                                    .maxConnections(maxConnections)
+                                    .maxConnectionsPerHost(maxConnections)
+                                    .build())
+                            .build();
+                    logger.info("Gemini client: model {}, endpoint {}, timeout {} ms, {} connections", model,
+                            baseUrl == null ? "default" : baseUrl, timeoutMillis, maxConnections);
+                    client = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void close() {
+        Client current = client;
+        if (current != null) {
+            current.close();
+        }
+    }
 
 
     /**
@@ -19,9 +130,56 @@ public class GeminiClient {
      * and includes them in the prompt provided to Gemini.
      *
      * The model is instructed to return only valid JSON with fields:
-     *   { "thought": "...", "action": "toolName|none", "action_input":"...", "final_answer":"..." }
+     *   { "thought": "...", "actions": [{"action": "toolName", "action_input": "..."}], "final_answer": "..." }
      */
     public String think(String query, Map<String, String> tools, String context) {
+        return think(query, tools, context, null, null);
+    }
+
+    /**
+     * Like {@link #think(String, Map, String)}, but when {@code onText} is given
+     * the response is streamed and each chunk of raw text is passed to it as it
+     * arrives, and when {@code usage} is given the call's token counts are
+     * added to it. Returns the whole response.
+     *
+     * The system instruction and tool list come from the prefix built for
+     * this catalog; only the steps so far and the query are sent as contents.
+     */
+    public String think(String query, Map<String, String> tools, String context, Consumer<String> onText,
+            TokenUsage usage) {
+        StringBuilder contextDesc = new StringBuilder();
+        if (context != null && !context.isBlank()) {
+            contextDesc.append("Previous steps and observations:\n").append(context).append("\n");
+        } else {
+            contextDesc.append("No previous steps.\n");
+        }
+        String prompt = contextDesc + "\nUser query: " + query;
+
+        PromptPrefixCache.Prefix prefix = prefixes.get(tools);
+        String cachedContent = prefixes.cachedContent(prefix, client(), model);
+        if (cachedContent != null) {
+            AtomicBoolean emitted = new AtomicBoolean();
+            try {
+                return callGemini(GenerateContentConfig.builder().cachedContent(cachedContent).build(), prompt,
+                        onText == null ? null : text -> {
+                            emitted.set(true);
+                            onText.accept(text);
+                        }, usage);
+            } catch (RuntimeException e) {
+                if (emitted.get()) {
+                    throw e;
+                }
+                // Most likely expired or evicted early; send this step inline and recreate it next time
+                logger.warn("Call with cached prompt prefix {} failed, retrying inline: {}", cachedContent, e.getMessage());
+                prefixes.invalidate(prefix);
+            }
+        }
+        return callGemini(GenerateContentConfig.builder().systemInstruction(prefix.instruction).build(), prompt,
+                onText, usage);
+    }
+
+    /** The ReAct system instruction followed by the tool list; the static part of every think() prompt. */
+    static String reactInstruction(Map<String, String> tools) {
         StringBuilder toolsDesc = new StringBuilder();
         if (tools != null && !tools.isEmpty()) {
             toolsDesc.append("Available tools (name: description). Use these when needed:\n");
@@ -36,44 +194,58 @@ public class GeminiClient {
             toolsDesc.append("Available tools: none\n");
         }
 
-        StringBuilder contextDesc = new StringBuilder();
-        if (context != null && !context.isBlank()) {
-            contextDesc.append("Previous steps and observations:\n").append(context).append("\n");
-        } else {
-            contextDesc.append("No previous steps.\n");
-        }
-
         String systemInstruction = """
         You are an agent that follows the ReAct pattern (Reason -> Act -> Observe -> Repeat).
         You MUST output ONLY valid JSON (no explanatory text) with these fields:
         {
           "thought": "<brief thought about what to do next>",
-          "action": "<tool name to call, or \\"none\\">",
-          "action_input": "<JSON string input for the tool. Take input parameters from the tool description. If action is \\"none\\", leave this empty.>",
+          "actions": [
+            {
+              "action": "<tool name to call>",
+              "action_input": "<JSON string input for the tool. Take input parameters from the tool description.>"
+            }
+          ],
           "final_answer": "<final answer if ready, otherwise empty>"
         }
-        If you decide a tool call is required, set action to the tool name and action_input appropriately.
-        If no tool is required and you can answer, set action to "none" and fill final_answer.
+        If you decide tool calls are required, list them in actions. Calls that do not depend on each other's
+        results (e.g. the same tool for several cities) go in the same step and run in parallel; a call that
+        needs an earlier result goes in a later step.
+        If no tool is required and you can answer, leave actions empty and fill final_answer.
         """;
 
-        String prompt = systemInstruction
-                + "\n\n" + toolsDesc
-                + "\n" + contextDesc
-                + "\nUser query: " + query;
-
-        return callGemini(prompt);
+        return systemInstruction + "\n\n" + toolsDesc;
     }
 
 
-    private String callGemini(String prompt) {
-        Client client = Client.builder()
-                .apiKey(API_KEY)
-                .build();
+    private String callGemini(GenerateContentConfig config, String prompt, Consumer<String> onText, TokenUsage usage) {
+        Client client = client();
 
-        // Then use client.models.generateContent(...) etc.
-        GenerateContentResponse resp = client.models.generateContent("gemini-2.0-flash", prompt, null);
+        if (onText == null) {
+            GenerateContentResponse resp = client.models.generateContent(model, prompt, config);
+            if (usage != null) {
+                resp.usageMetadata().ifPresent(usage::add);
+            }
+            return resp.text();
+        }
 
-        return resp.text();
+        StringBuilder text = new StringBuilder();
+        GenerateContentResponseUsageMetadata lastUsage = null;
+        try (ResponseStream<GenerateContentResponse> stream =
+                     client.models.generateContentStream(model, prompt, config)) {
+            for (GenerateContentResponse chunk : stream) {
+                String part = chunk.text();
+                if (part != null && !part.isEmpty()) {
+                    text.append(part);
+                    onText.accept(part);
+                }
+                // Each chunk repeats the counts so far; the last one has the totals
+                lastUsage = chunk.usageMetadata().orElse(lastUsage);
+            }
+        }
+        if (usage != null && lastUsage != null) {
+            usage.add(lastUsage);
+        }
+        return text.toString();
     }
 
     /**
@@ -81,12 +253,16 @@ public class GeminiClient {
      * a modified prompt or implement respond() similarly. If you already had respond(), keep it.
      */
     public String respond(String query, String context) {
+        return respond(query, context, null, null);
+    }
+
+    /** Streaming form of {@link #respond(String, String)}; chunks go to {@code onText} as they arrive. */
+    public String respond(String query, String context, Consumer<String> onText, TokenUsage usage) {
         String prompt = "User query: " + query;
         if (context != null && !context.isBlank()) {
             prompt += "\nTool observation: " + context;
         }
         // We request a plain text answer in this case
-        String system = "You are an assistant. Provide a concise, user-facing final answer in plain text.";
-        return callGemini(system + "\n\n" + prompt);
+        return callGemini(RESPOND_CONFIG, prompt, onText, usage);
     }
 }
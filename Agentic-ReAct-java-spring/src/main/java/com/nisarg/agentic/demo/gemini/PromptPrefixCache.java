@@ -0,0 +1,202 @@
+package com.nisarg.agentic.demo.gemini;
+
+import com.google.genai.Client;
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.Content;
+import com.google.genai.types.CreateCachedContentConfig;
+import com.google.genai.types.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The static part of the ReAct prompt (system instruction plus the tool
+ * catalog), built once per catalog and reused by every step of every chat
+ * that sees the same catalog. Catalogs are the immutable snapshots
+ * {@code MCPClient} hands out, a new one only when a server's tool list
+ * changes, so steps find their prefix by snapshot identity; a new snapshot
+ * is compared by content once, in case it lists the same tools as an
+ * earlier one. A handful of entries is plenty.
+ *
+ * With context caching enabled the prefix is also uploaded once as Gemini
+ * cached content, and steps send only the changing suffix with a reference
+ * to it. If the model or the prefix does not qualify (cached content has a
+ * minimum size), the prefix is sent inline as the system instruction.
+ * Evicting a prefix deletes its cached content rather than leaving it
+ * billed until it expires.
+ */
+class PromptPrefixCache {
+    private static final Logger logger = LoggerFactory.getLogger(PromptPrefixCache.class);
+
+    private static final int MAX_CATALOGS = 16;
+    // Recreate cached content a little before the server expires it
+    private static final Duration EXPIRY_MARGIN = Duration.ofMinutes(1);
+
+    private final boolean contextCache;
+    private final Duration ttl;
+    // Guarded by the monitor of byContent; evicting from it evicts from bySnapshot too
+    private final List<Prefix> evicted = new ArrayList<>();
+    private final Map<Map<String, String>, Prefix> byContent = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Map<String, String>, Prefix> eldest) {
+            if (size() <= MAX_CATALOGS) {
+                return false;
+            }
+            evicted.add(eldest.getValue());
+            return true;
+        }
+    };
+    private final Map<Snapshot, Prefix> bySnapshot = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Snapshot, Prefix> eldest) {
+            return size() > MAX_CATALOGS;
+        }
+    };
+
+    PromptPrefixCache(boolean contextCache, Duration ttl) {
+        this.contextCache = contextCache;
+        this.ttl = ttl;
+    }
+
+    /**
+     * The prefix for {@code tools}, built on first use. {@code tools} must not
+     * change afterwards; a changed catalog is a new snapshot.
+     */
+    Prefix get(Map<String, String> tools) {
+        Map<String, String> key = tools == null ? Map.of() : tools;
+        Snapshot snapshot = new Snapshot(key);
+        Prefix prefix;
+        List<Prefix> dropped;
+        synchronized (byContent) {
+            prefix = bySnapshot.get(snapshot);
+            if (prefix != null) {
+                return prefix;
+            }
+            prefix = byContent.get(key);
+            if (prefix == null) {
+                prefix = new Prefix(GeminiClient.reactInstruction(key));
+                byContent.put(key, prefix);
+            }
+            bySnapshot.put(snapshot, prefix);
+            dropped = List.copyOf(evicted);
+            evicted.clear();
+            bySnapshot.values().removeAll(dropped);
+        }
+        // Outside the lock: deleting is a call to the server
+        dropped.forEach(this::delete);
+        return prefix;
+    }
+
+    /**
+     * Name of the cached content holding {@code prefix}, created on first use,
+     * or null to send the prefix inline.
+     */
+    String cachedContent(Prefix prefix, Client client, String model) {
+        if (!contextCache) {
+            return null;
+        }
+        if (Instant.now().isBefore(prefix.cachedUntil)) {
+            return prefix.cachedContent;
+        }
+        // A lock rather than synchronized: creating blocks on I/O, which would pin a virtual thread's carrier
+        prefix.lock.lock();
+        try {
+            if (Instant.now().isBefore(prefix.cachedUntil) || prefix.evicted) {
+                return prefix.cachedContent;
+            }
+            try {
+                CachedContent cached = client.caches.create(model, CreateCachedContentConfig.builder()
+                        .systemInstruction(prefix.instruction)
+                        .ttl(ttl)
+                        .displayName("react-prefix")
+                        .build());
+                prefix.cachedContent = cached.name().orElse(null);
+                prefix.client = client;
+                prefix.cachedUntil = cached.expireTime().orElse(Instant.now().plus(ttl)).minus(EXPIRY_MARGIN);
+                logger.info("Cached prompt prefix ({} chars) as {}", prefix.text.length(), prefix.cachedContent);
+            } catch (RuntimeException e) {
+                // Typically below the model's minimum cacheable size; try again once a TTL has passed
+                logger.warn("Prompt prefix not cached, sending it inline: {}", e.getMessage());
+                prefix.cachedContent = null;
+                prefix.cachedUntil = Instant.now().plus(ttl);
+            }
+            return prefix.cachedContent;
+        } finally {
+            prefix.lock.unlock();
+        }
+    }
+
+    /** Forgets cached content the server no longer has; the next call recreates it. */
+    void invalidate(Prefix prefix) {
+        prefix.lock.lock();
+        try {
+            prefix.cachedContent = null;
+            prefix.cachedUntil = Instant.MIN;
+        } finally {
+            prefix.lock.unlock();
+        }
+    }
+
+    /** Drops an evicted prefix's cached content; steps still holding the prefix send it inline. */
+    private void delete(Prefix prefix) {
+        String name;
+        Client client;
+        prefix.lock.lock();
+        try {
+            prefix.evicted = true;
+            name = prefix.cachedContent;
+            client = prefix.client;
+            prefix.cachedContent = null;
+            prefix.cachedUntil = Instant.MAX;
+        } finally {
+            prefix.lock.unlock();
+        }
+        if (name == null) {
+            return;
+        }
+        try {
+            client.caches.delete(name, null);
+            logger.info("Deleted cached prompt prefix {}", name);
+        } catch (RuntimeException e) {
+            // It expires on its own at the end of its TTL
+            logger.warn("Could not delete cached prompt prefix {}: {}", name, e.getMessage());
+        }
+    }
+
+    /** A catalog compared by identity, so a step finds its prefix without hashing the catalog. */
+    private record Snapshot(Map<String, String> tools) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Snapshot other && other.tools == tools;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(tools);
+        }
+    }
+
+    static final class Prefix {
+        final String text;
+        final Content instruction;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Null while the prefix goes inline; either way valid until cachedUntil
+        private volatile String cachedContent;
+        private volatile Instant cachedUntil = Instant.MIN;
+        // Where cachedContent lives, to delete it on eviction
+        private Client client;
+        private boolean evicted;
+
+        Prefix(String text) {
+            this.text = text;
+            this.instruction = Content.fromParts(Part.fromText(text));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nisarg.agentic.demo.gemini;
+
+import com.google.genai.types.GenerateContentResponseUsageMetadata;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token counts reported by Gemini over the calls of one chat. Cached tokens
+ * are prompt tokens served from a context cache (explicit or implicit), i.e.
+ * prefix tokens the chat did not pay for in full.
+ */
+public class TokenUsage {
+
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong cachedTokens = new AtomicLong();
+
+    void add(GenerateContentResponseUsageMetadata usage) {
+        promptTokens.addAndGet(usage.promptTokenCount().orElse(0));
+        cachedTokens.addAndGet(usage.cachedContentTokenCount().orElse(0));
+    }
+
+    public long getPromptTokens() {
+        return promptTokens.get();
+    }
+
+    public long getCachedTokens() {
+        return cachedTokens.get();
+    }
+}
@@ -0,0 +1,209 @@
+package com.nisarg.agentic.demo.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * JSON-RPC over one MCP session: requests are posted through a
+ * {@link Transport} and their responses arrive on the shared SSE stream.
+ *
+ * Every request gets a unique id and a pending future in a map, so each
+ * incoming message is parsed once and routed by id with a single lookup,
+ * whatever text the result happens to contain. At most {@code maxInFlight}
+ * requests are outstanding at a time; the rest wait in a queue without
+ * holding a thread. A request's timeout covers both the wait and the round
+ * trip, and a completed, timed-out or cancelled request always leaves the
+ * pending map. Starting queued requests never recurses: a slot freed while
+ * the queue is being drained is picked up by the drain already running.
+ */
+class JsonRpcMultiplexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonRpcMultiplexer.class);
+
+    /** Posts one serialised JSON-RPC message to the server. */
+    @FunctionalInterface
+    interface Transport {
+        CompletableFuture<Void> send(String payload);
+    }
+
+    private final ObjectMapper mapper;
+    private final Transport transport;
+    private final Consumer<JsonNode> incoming;
+    private final Semaphore permits;
+    private final String idPrefix;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /**
+     * @param transport   used for requests sent without an explicit transport
+     * @param incoming    receives server notifications and server-to-client requests
+     * @param maxInFlight requests posted but not yet answered, at most
+     */
+    JsonRpcMultiplexer(ObjectMapper mapper, Transport transport, Consumer<JsonNode> incoming, int maxInFlight,
+            String idPrefix) {
+        this.mapper = mapper;
+        this.transport = transport;
+        this.incoming = incoming;
+        this.permits = new Semaphore(maxInFlight);
+        this.idPrefix = idPrefix;
+    }
+
+    /**
+     * Sends a request and completes with its {@code result}, or with an
+     * {@link McpException}. Cancelling the returned future abandons the
+     * request and frees its slot.
+     */
+    CompletableFuture<JsonNode> request(String method, JsonNode params, Duration timeout) {
+        return request(method, params, timeout, transport);
+    }
+
+    CompletableFuture<JsonNode> request(String method, JsonNode params, Duration timeout, Transport via) {
+        String id = idPrefix + ids.incrementAndGet();
+        CompletableFuture<JsonNode> response = new CompletableFuture<>();
+        pending.put(id, response);
+        response.whenComplete((result, error) -> pending.remove(id));
+        // The shared timer's task is cancelled as soon as the response completes
+        response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        String payload = message(id, method, params);
+        enqueue(() -> {
+            if (response.isDone()) {
+                // Timed out or cancelled while queued
+                release();
+                return;
+            }
+            response.whenComplete((result, error) -> release());
+            via.send(payload).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    response.completeExceptionally(new McpException("Failed to send " + method, error));
+                }
+            });
+        });
+
+        CompletableFuture<JsonNode> result = response.exceptionallyCompose(error -> {
+            // Before the caller sees the failure, so inFlight() no longer counts it
+            pending.remove(id);
+            return CompletableFuture.failedFuture(error instanceof TimeoutException
+                    ? new McpException(0, "Timed out waiting for " + method)
+                    : error);
+        });
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                response.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /** Sends a notification; there is no response to wait for. */
+    CompletableFuture<Void> notify(String method, JsonNode params, Transport via) {
+        return via.send(message(null, method, params));
+    }
+
+    /** Answers a server-to-client request. */
+    CompletableFuture<Void> reply(JsonNode id, JsonNode result, Transport via) {
+        ObjectNode message = mapper.createObjectNode().put("jsonrpc", "2.0");
+        message.set("id", id);
+        message.set("result", result);
+        return via.send(message.toString());
+    }
+
+    /** Routes one message from the SSE stream. */
+    void dispatch(String data) {
+        JsonNode message;
+        try {
+            message = mapper.readTree(data);
+        } catch (Exception e) {
+            logger.warn("Ignoring unparseable MCP message: {}", e.getMessage());
+            return;
+        }
+        JsonNode id = message.get("id");
+        if (message.has("method")) {
+            incoming.accept(message);
+        } else if (id != null && !id.isNull()) {
+            CompletableFuture<JsonNode> response = pending.remove(id.asText());
+            if (response == null) {
+                logger.debug("No pending request for response id {} (timed out?)", id.asText());
+            } else if (message.has("error")) {
+                JsonNode error = message.get("error");
+                response.completeExceptionally(
+                        new McpException(error.path("code").asInt(), error.path("message").asText("MCP error")));
+            } else {
+                response.complete(message.path("result"));
+            }
+        }
+    }
+
+    /** Fails every outstanding request, e.g. when the session it was sent on is gone. */
+    void failAll(String reason) {
+        pending.values().forEach(response -> response.completeExceptionally(new McpException(0, reason)));
+    }
+
+    int inFlight() {
+        return pending.size();
+    }
+
+    private String message(String id, String method, JsonNode params) {
+        ObjectNode message = mapper.createObjectNode().put("jsonrpc", "2.0");
+        if (id != null) {
+            message.put("id", id);
+        }
+        message.put("method", method);
+        if (params != null) {
+            message.set("params", params);
+        }
+        return message.toString();
+    }
+
+    private void enqueue(Runnable send) {
+        waiting.add(send);
+        drain();
+    }
+
+    private void release() {
+        permits.release();
+        drain();
+    }
+
+    /**
+     * Starts queued requests while permits are free; safe to call from any
+     * thread. Only one caller drains at a time; a call made meanwhile, e.g.
+     * from a request that completed while being started, makes that caller
+     * look again instead of draining on its own stack.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    permits.release();
+                    break;
+                }
+                next.run();
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -2,170 +2,139 @@ package com.nisarg.agentic.demo.mcp;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.nisarg.agentic.demo.util.ParsingUtility;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+/**
+ * The MCP servers listed in {@code mcp.json}, behind one client. Each server
+ * gets its own {@link McpSession}; their tool catalogs are merged into one,
+ * and every tool call is routed to a server that exposes the tool.
+ *
+ * A tool that several servers expose with the same description is treated
+ * as replicated: it appears once in the catalog and each call goes to the
+ * healthy server with the lowest expected latency. Tools that share a name
+ * but not a description are namespaced as {@code server/tool}. Any tool can
+ * also be called as {@code server/tool} to pin the server. The routes are
+ * built from the catalog snapshots the sessions already hold, so a server
+ * that is slow to list its tools does not hold up calls to the others, and
+ * they are rebuilt after any server's catalog changes.
+ *
+ * Without an {@code mcp.json} the client connects to {@code MCP_SSE_URL}.
+ */
 @Component
 public class MCPClient {
     private static final Logger logger = LoggerFactory.getLogger(MCPClient.class);
 
-    private final WebClient webClient;
-    private String sessionId = null;
-    private final Map<String, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<McpSession> sessions;
+    // Catalog and routes built from the sessions' latest catalog snapshots
+    private volatile Routing routing;
+    // Bumped whenever a session's catalog changes; a routing built before is stale
+    private final AtomicLong catalogVersion = new AtomicLong();
 
+    private final String configPath = System.getenv().getOrDefault("MCP_CONFIG", "mcp.json");
     private final String sseUrl = System.getenv().getOrDefault("MCP_SSE_URL", "http://localhost:8081/mcp/sse");
-    private final String messageUrl = System.getenv().getOrDefault("MCP_MESSAGE_URL", "http://localhost:8081/mcp/message");
+    private final int maxInFlight = Integer.parseInt(System.getenv().getOrDefault("MCP_MAX_IN_FLIGHT", "256"));
 
     public MCPClient(WebClient.Builder builder) {
-        this.webClient = builder.build();
+        WebClient webClient = builder.build();
+        Map<String, String> servers = readServers();
+        List<McpSession> sessions = new ArrayList<>();
+        servers.forEach((name, url) -> sessions.add(new McpSession(name, url, webClient, mapper, maxInFlight,
+                catalogVersion::incrementAndGet)));
+        this.sessions = List.copyOf(sessions);
     }
 
-    @PostConstruct
-    public void connect() {
-        logger.info("Connecting to MCP SSE at {}", sseUrl);
-
-        Flux<String> eventStream = webClient.get()
-                .uri(sseUrl)
-                .accept(MediaType.TEXT_EVENT_STREAM)
-                .retrieve()
-                .bodyToFlux(String.class);
-
-        eventStream
-                .doOnNext(this::handleEvent)
-                .doOnError(err -> logger.error("SSE error: {}", err.getMessage()))
-                .retryWhen(reactor.util.retry.Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(3)))
-                .subscribe();
-    }
-
-    private void handleEvent(String event) {
-        logger.info("SSE Event: {}", event);
-
-        if (event.contains("sessionId")) {
-            this.sessionId = extractSessionIdFromUrl(event);
-            logger.info("Session ID: {}", sessionId);
-            sendInitialize();
-            return;
-        }
-
-        if (event.contains("\"id\":\"init-")) {
-            logger.info("MCP connection initialized successfully!");
-            onNotificationInitialize();
-            return;
-        }
-
-        String id = extractIdField(event);
-        if (event.contains("\"tools\"") || event.contains("\"tools/list\"")) {
-            completeFuture(id, event);
-            return;
-        }
-
-        try {
-            if (id != null && pendingRequests.containsKey(id)) {
-                String result = ParsingUtility.extractResult(event);
-                completeFuture(id, result);
+    /** Server name to SSE URL, from {@code mcp.json} or else the environment. */
+    private Map<String, String> readServers() {
+        Map<String, String> servers = new LinkedHashMap<>();
+        Path path = Path.of(configPath);
+        if (Files.isRegularFile(path)) {
+            try {
+                Iterator<Map.Entry<String, JsonNode>> entries = mapper.readTree(path.toFile()).path("servers").fields();
+                while (entries.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = entries.next();
+                    String type = entry.getValue().path("type").asText("http");
+                    String url = entry.getValue().path("url").asText("");
+                    if (url.isBlank() || !("http".equals(type) || "sse".equals(type))) {
+                        logger.warn("Skipping MCP server {}: only http/sse servers with a url are supported", entry.getKey());
+                        continue;
+                    }
+                    servers.put(entry.getKey(), url);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read {}: {}", path, e.getMessage());
             }
-        } catch (Exception e) {
-            logger.error("Failed to parse SSE event: {}", e.getMessage());
         }
-    }
-
-    private void completeFuture(String id, String result) {
-        if (id != null && pendingRequests.containsKey(id)) {
-            pendingRequests.get(id).complete(result);
-            pendingRequests.remove(id);
+        if (servers.isEmpty()) {
+            servers.put("default", sseUrl);
         }
+        logger.info("MCP servers: {}", servers);
+        return servers;
     }
 
-    private void onNotificationInitialize() {
-        String initMessage = """
-            {
-              "jsonrpc": "2.0",
-              "method": "notifications/initialized"
-            }
-            """;
-        postMessage(initMessage, "Sent notification initialize message", "Failed to send notification initialize");
+    @PostConstruct
+    public void connect() {
+        sessions.forEach(McpSession::connect);
     }
 
-    private void sendInitialize() {
-        String initMessage = """
-            {
-              "jsonrpc": "2.0",
-              "id": "init-%s",
-              "method": "initialize",
-              "params": {
-                "protocolVersion": "2024-11-05",
-                "clientInfo": {
-                  "name": "spring-agent-client",
-                  "version": "1.0.0"
-                },
-                "capabilities": {}
-              }
+    /**
+     * Calls a tool without blocking. Completes with the tool's text, or errors
+     * with an {@link McpException}. Cancelling the subscription abandons the
+     * request and removes it from the pending requests.
+     */
+    public Mono<String> callToolAsync(String toolName, String inputJson) {
+        return Mono.defer(() -> {
+            JsonNode arguments;
+            try {
+                arguments = inputJson == null || inputJson.isBlank()
+                        ? mapper.createObjectNode()
+                        : mapper.readTree(inputJson);
+            } catch (Exception e) {
+                return Mono.just("Invalid tool input (expected JSON): " + inputJson);
             }
-            """.formatted(UUID.randomUUID().toString());
-        postMessage(initMessage, "Sent initialize message", "Failed to send initialize");
-    }
-
-    private void postMessage(String payload, String successMsg, String errorMsg) {
-        webClient.post()
-                .uri(messageUrl + "?sessionId=" + sessionId)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(payload))
-                .retrieve()
-                .onStatus(
-                        HttpStatusCode::isError,
-                        clientResponse -> clientResponse.bodyToMono(String.class)
-                                .doOnNext(body -> logger.error("Error response: {}", body))
-                                .thenReturn(new RuntimeException("HTTP error: " + clientResponse.statusCode()))
-                )
-                .toBodilessEntity()
-                .doOnSuccess(r -> logger.info(successMsg))
-                .doOnError(err -> logger.error(errorMsg + ": {}", err.getMessage()))
-                .subscribe();
+            Routing current = routing;
+            Mono<Routing> routes = current != null && current.version() == catalogVersion.get()
+                    ? Mono.just(current)
+                    : toolCatalog().then(Mono.fromSupplier(() -> routing));
+            return routes.flatMap(r -> {
+                Route route = r.route(toolName, sessions);
+                if (route == null) {
+                    return Mono.error(new McpException(-32602, "Unknown tool: " + toolName));
+                }
+                return route.session().callTool(route.tool(), arguments);
+            });
+        });
     }
 
+    /** Blocking form of {@link #callToolAsync}; failures come back as text for the agent to observe. */
     public String callTool(String toolName, String inputJson) {
-        String requestId = UUID.randomUUID().toString();
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put(requestId, future);
-
-        String payload = String.format(
-                "{\"jsonrpc\":\"2.0\",\"id\":\"%s\",\"method\":\"tools/call\",\"params\":{\"name\":\"%s\",\"arguments\":%s}}",
-                requestId, toolName, inputJson
-        );
-
-        postMessage(payload, null, "Failed to send tool call");
-
         try {
-            return future.get(20, java.util.concurrent.TimeUnit.SECONDS);
-        } catch (Exception e) {
-            pendingRequests.remove(requestId);
-            return "Timeout waiting for tool response";
+            return callToolAsync(toolName, inputJson).block();
+        } catch (RuntimeException e) {
+            logger.error("Tool call {} failed: {}", toolName, e.getMessage());
+            return "Tool call failed: " + e.getMessage();
         }
     }
 
-    private String extractIdField(String json) {
-        String pattern = "\"" + "id" + "\":\"";
-        int start = json.indexOf(pattern);
-        if (start == -1) return null;
-        int end = json.indexOf("\"", start + pattern.length());
-        return json.substring(start + pattern.length(), end);
-    }
-
     public static String extractSessionIdFromUrl(String url) {
         String key = "sessionId=";
         int idx = url.indexOf(key);
@@ -176,36 +145,115 @@ public class MCPClient {
         return url.substring(start, end);
     }
 
+    /**
+     * The merged tool catalog of all servers, from each server's cached
+     * snapshot. A server that is down or fails to answer contributes no tools.
+     * Only waits for a server whose first catalog fetch is still running.
+     */
+    public Mono<Map<String, String>> toolCatalog() {
+        return Mono.defer(() -> {
+            // Read first: a change while the snapshots are fetched leaves this routing stale
+            long version = catalogVersion.get();
+            return merged(McpSession::toolCatalog).map(snapshots -> {
+                Routing current = routing;
+                if (current == null || current.version() != version || !current.isBuiltFrom(snapshots)) {
+                    current = Routing.build(sessions, snapshots, version);
+                    routing = current;
+                }
+                return current.catalog();
+            });
+        });
+    }
+
+    /** Fetches and merges the tools of every server, bypassing the cached catalogs. */
+    public Mono<Map<String, String>> listToolsAsync() {
+        return merged(McpSession::listTools).map(snapshots -> Routing.build(sessions, snapshots, -1).catalog());
+    }
+
+    /** Blocking form of {@link #toolCatalog}; an empty map when the catalog is unavailable. */
     public Map<String, String> listTools() {
-        String requestId = UUID.randomUUID().toString();
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put(requestId, future);
+        return toolCatalog()
+                .onErrorResume(e -> {
+                    logger.error("Timeout or error waiting for tool list: {}", e.getMessage());
+                    return Mono.just(Collections.emptyMap());
+                })
+                .block();
+    }
+
+    /** One catalog per session, in session order, fetched in parallel. */
+    private Mono<List<Map<String, String>>> merged(Function<McpSession, Mono<Map<String, String>>> fetch) {
+        return Flux.fromIterable(sessions)
+                .flatMapSequential(session -> fetch.apply(session)
+                        .onErrorReturn(Collections.emptyMap()))
+                .collectList();
+    }
 
-        String payload = String.format(
-                "{\"jsonrpc\":\"2.0\",\"id\":\"%s\",\"method\":\"tools/list\",\"params\":{}}",
-                requestId
-        );
+    private record Route(McpSession session, String tool) {
+    }
 
-        postMessage(payload, null, "Failed to request tool list");
+    /**
+     * The merged catalog and, for every name in it and every
+     * {@code server/tool}, the servers that can answer it, as of catalog
+     * {@code version}.
+     */
+    private record Routing(long version, List<Map<String, String>> sources, Map<String, String> catalog,
+            Map<String, List<Route>> routes) {
 
-        try {
-            String result = future.get(10, java.util.concurrent.TimeUnit.SECONDS);
-            Map<String, String> tools = new ConcurrentHashMap<>();
-            JsonNode json = new ObjectMapper().readTree(result);
-            JsonNode toolsNode = json.path("result").path("tools");
-            if (toolsNode.isArray()) {
-                for (JsonNode t : toolsNode) {
-                    String name = t.path("name").asText();
-                    String desc = t.path("description").asText("");
-                    tools.put(name, desc);
+        private static final Comparator<Route> BEST = Comparator
+                .comparing((Route route) -> !route.session().isHealthy())
+                .thenComparingDouble(route -> route.session().expectedLatencyMillis());
+
+        static Routing build(List<McpSession> sessions, List<Map<String, String>> snapshots, long version) {
+            Map<String, List<Route>> byTool = new LinkedHashMap<>();
+            Map<String, String> descriptions = new LinkedHashMap<>();
+            Map<String, Boolean> replicated = new LinkedHashMap<>();
+            Map<String, List<Route>> routes = new LinkedHashMap<>();
+            for (int i = 0; i < sessions.size(); i++) {
+                McpSession session = sessions.get(i);
+                for (Map.Entry<String, String> tool : snapshots.get(i).entrySet()) {
+                    Route route = new Route(session, tool.getKey());
+                    byTool.computeIfAbsent(tool.getKey(), name -> new ArrayList<>()).add(route);
+                    String first = descriptions.putIfAbsent(tool.getKey(), tool.getValue());
+                    replicated.merge(tool.getKey(), first == null || first.equals(tool.getValue()), Boolean::logicalAnd);
+                    routes.put(session.getName() + "/" + tool.getKey(), List.of(route));
+                }
+            }
+
+            Map<String, String> catalog = new LinkedHashMap<>();
+            byTool.forEach((name, candidates) -> {
+                if (replicated.get(name)) {
+                    catalog.put(name, descriptions.get(name));
+                    routes.put(name, List.copyOf(candidates));
+                } else {
+                    for (Route route : candidates) {
+                        String qualified = route.session().getName() + "/" + name;
+                        catalog.put(qualified, snapshots.get(sessions.indexOf(route.session())).get(name));
+                    }
                 }
+            });
+            return new Routing(version, List.copyOf(snapshots), Collections.unmodifiableMap(catalog), Map.copyOf(routes));
+        }
+
+        /** Snapshots are immutable and replaced on change, so identity tells whether they are the same. */
+        boolean isBuiltFrom(List<Map<String, String>> snapshots) {
+            if (snapshots.size() != sources.size()) {
+                return false;
+            }
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (snapshots.get(i) != sources.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Route route(String name, List<McpSession> sessions) {
+            List<Route> candidates = routes.get(name);
+            if (candidates == null) {
+                // With a single server, let the server answer for tools it does not know
+                return sessions.size() == 1 ? new Route(sessions.get(0), name) : null;
             }
-            return Collections.unmodifiableMap(tools);
-        } catch (Exception e) {
-            logger.error("Timeout or error waiting for tool list: {}", e.getMessage());
-            return Collections.emptyMap();
-        } finally {
-            pendingRequests.remove(requestId);
+            return candidates.size() == 1 ? candidates.get(0) : Collections.min(candidates, BEST);
         }
     }
 }
@@ -0,0 +1,25 @@
+package com.nisarg.agentic.demo.mcp;
+
+/**
+ * A JSON-RPC error returned by an MCP server, or a request that could not be
+ * completed (timed out, session lost).
+ */
+public class McpException extends RuntimeException {
+
+    private final int code;
+
+    public McpException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public McpException(String message, Throwable cause) {
+        super(message, cause);
+        this.code = 0;
+    }
+
+    /** JSON-RPC error code, or 0 when the error did not come from the server. */
+    public int getCode() {
+        return code;
+    }
+}
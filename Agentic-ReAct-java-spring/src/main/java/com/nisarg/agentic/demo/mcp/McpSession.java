@@ -0,0 +1,328 @@
+package com.nisarg.agentic.demo.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nisarg.agentic.demo.util.ParsingUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One MCP server over the SSE transport. All requests share the server's
+ * single SSE stream; a {@link JsonRpcMultiplexer} matches each response to
+ * its request by JSON-RPC id, so any number of concurrent agent
+ * conversations can call tools over the same session.
+ *
+ * The tool catalog is fetched once per session, right after initialization,
+ * and kept as an immutable snapshot. It is fetched again in the background
+ * when the server sends {@code notifications/tools/list_changed} or a new
+ * session starts, while callers keep getting the snapshot they have. A failed
+ * fetch counts as an empty catalog until it is retried, after a backoff that
+ * grows with each failure, so a server that cannot list its tools never
+ * holds up calls to the others. The owner is told only when a fetch returns
+ * a catalog different from the snapshot, so it can drop what it derived from
+ * the old one.
+ *
+ * The session also tracks what {@link MCPClient} needs to choose between
+ * servers exposing the same tool: whether it is up, a moving average of its
+ * tool call latency, and how many calls it has in flight.
+ */
+class McpSession {
+    private static final Logger logger = LoggerFactory.getLogger(McpSession.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT =
+            new ParameterizedTypeReference<>() {};
+    private static final Duration INITIALIZE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration CALL_TOOL_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration LIST_TOOLS_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration CATALOG_RETRY_MIN = Duration.ofSeconds(1);
+    private static final Duration CATALOG_RETRY_MAX = Duration.ofSeconds(60);
+    // Weight of the newest sample in the latency average
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final String name;
+    private final String sseUrl;
+    private final WebClient webClient;
+    private final ObjectMapper mapper;
+    private final JsonRpcMultiplexer rpc;
+    private final Runnable catalogChanged;
+    // Completes with the session's message URL once the session is initialized
+    private volatile CompletableFuture<String> session = new CompletableFuture<>();
+    // Latest tool catalog; null until the first fetch has finished, empty if it failed
+    private volatile Map<String, String> catalog;
+    // Catalog state below is guarded by this session's monitor
+    private CompletableFuture<Map<String, String>> fetching;
+    // The server may have changed its tools since the last successful fetch
+    private boolean stale = true;
+    private int failedFetches;
+    private long retryAtNanos;
+    // Set when the SSE stream fails, cleared when a new session is initialized
+    private volatile boolean down;
+    private volatile double latencyMillis;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * @param catalogChanged called whenever a fetch replaces the cached tool catalog with a different one
+     */
+    McpSession(String name, String sseUrl, WebClient webClient, ObjectMapper mapper, int maxInFlight,
+            Runnable catalogChanged) {
+        this.name = name;
+        this.catalogChanged = catalogChanged;
+        this.sseUrl = sseUrl;
+        this.webClient = webClient;
+        this.mapper = mapper;
+        this.rpc = new JsonRpcMultiplexer(mapper,
+                payload -> session.thenCompose(url -> post(url, payload)),
+                this::onServerMessage, maxInFlight, "req-");
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void connect() {
+        logger.info("Connecting to MCP server {} at {}", name, sseUrl);
+
+        Flux<ServerSentEvent<String>> eventStream = webClient.get()
+                .uri(sseUrl)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(SSE_EVENT);
+
+        eventStream
+                .doOnNext(this::handleEvent)
+                .doOnError(err -> {
+                    logger.error("SSE error from {}: {}", name, err.getMessage());
+                    down = true;
+                    // Responses only arrive on the stream, so nothing outstanding can complete now
+                    rpc.failAll("MCP server " + name + " is unreachable");
+                })
+                .retryWhen(reactor.util.retry.Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(3)))
+                .subscribe();
+    }
+
+    private void handleEvent(ServerSentEvent<String> event) {
+        logger.debug("SSE Event from {}: {} {}", name, event.event(), event.data());
+        if (event.data() == null || event.data().isBlank()) {
+            return;
+        }
+        if ("endpoint".equals(event.event())) {
+            onEndpoint(event.data());
+            return;
+        }
+        rpc.dispatch(event.data());
+    }
+
+    /** A (re)connected stream announces its session; requests wait until it is initialized. */
+    private void onEndpoint(String endpoint) {
+        logger.info("Session ID for {}: {}", name, MCPClient.extractSessionIdFromUrl(endpoint));
+        // The endpoint is usually relative to the SSE URL
+        String url = URI.create(sseUrl).resolve(endpoint).toString();
+
+        if (session.isDone()) {
+            session = new CompletableFuture<>();
+            // Responses to requests sent on the earlier session will never arrive
+            rpc.failAll("MCP session was reset");
+            // The server behind the new session may expose different tools
+            synchronized (this) {
+                stale = true;
+            }
+        }
+
+        CompletableFuture<String> current = session;
+        JsonRpcMultiplexer.Transport direct = payload -> post(url, payload);
+        rpc.request("initialize", initializeParams(), INITIALIZE_TIMEOUT, direct)
+                .thenCompose(result -> {
+                    logger.info("MCP connection to {} initialized successfully!", name);
+                    return rpc.notify("notifications/initialized", null, direct);
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.error("Failed to initialize MCP session with {}: {}", name, error.getMessage());
+                    } else {
+                        down = false;
+                        current.complete(url);
+                        // Unless a chat that arrived early already asked for it
+                        currentCatalog();
+                    }
+                });
+    }
+
+    private ObjectNode initializeParams() {
+        ObjectNode params = mapper.createObjectNode().put("protocolVersion", "2024-11-05");
+        params.putObject("clientInfo").put("name", "spring-agent-client").put("version", "1.0.0");
+        params.putObject("capabilities");
+        return params;
+    }
+
+    /** Notifications and server-to-client requests. */
+    private void onServerMessage(JsonNode message) {
+        String method = message.path("method").asText();
+        if (message.hasNonNull("id")) {
+            // ping is the only request a server sends to a client without capabilities
+            CompletableFuture<String> current = session;
+            if ("ping".equals(method) && current.isDone()) {
+                rpc.reply(message.get("id"), mapper.createObjectNode(),
+                        payload -> current.thenCompose(url -> post(url, payload)));
+            }
+            return;
+        }
+        logger.debug("MCP notification from {}: {}", name, method);
+        if ("notifications/tools/list_changed".equals(method)) {
+            logger.info("MCP tool list of {} changed, refreshing catalog", name);
+            synchronized (this) {
+                stale = true;
+            }
+            currentCatalog();
+        }
+    }
+
+    private CompletableFuture<Void> post(String url, String payload) {
+        return webClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(payload))
+                .retrieve()
+                .onStatus(
+                        HttpStatusCode::isError,
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .doOnNext(body -> logger.error("Error response from {}: {}", name, body))
+                                .thenReturn(new RuntimeException("HTTP error: " + clientResponse.statusCode()))
+                )
+                .toBodilessEntity()
+                .then()
+                .toFuture();
+    }
+
+    /** Calls a tool on this server; {@code arguments} is already parsed. */
+    Mono<String> callTool(String toolName, JsonNode arguments) {
+        return Mono.defer(() -> {
+            ObjectNode params = mapper.createObjectNode().put("name", toolName);
+            params.set("arguments", arguments);
+            long start = System.nanoTime();
+            calls.incrementAndGet();
+            return Mono.fromFuture(() -> rpc.request("tools/call", params, CALL_TOOL_TIMEOUT))
+                    .doOnSuccess(result -> recordLatency(System.nanoTime() - start))
+                    .doOnError(error -> {
+                        // A JSON-RPC error is an answer; only a missing answer counts against the server
+                        if (error instanceof McpException e && e.getCode() == 0) {
+                            recordLatency(CALL_TOOL_TIMEOUT.toNanos());
+                        }
+                    })
+                    .doFinally(signal -> calls.decrementAndGet())
+                    .mapNotNull(ParsingUtility::extractText)
+                    .defaultIfEmpty("Tool returned no text");
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        double millis = nanos / 1e6;
+        double previous = latencyMillis;
+        latencyMillis = previous == 0 ? millis : previous + LATENCY_ALPHA * (millis - previous);
+    }
+
+    /** Initialized and its stream is up. */
+    boolean isHealthy() {
+        CompletableFuture<String> current = session;
+        return !down && current.isDone() && !current.isCompletedExceptionally();
+    }
+
+    /** Expected wait for a new tool call: the average latency, scaled by the calls already queued. */
+    double expectedLatencyMillis() {
+        return latencyMillis * (1 + calls.get());
+    }
+
+    /**
+     * The cached tool catalog. Callers share one fetch, and only the very
+     * first one waits for it; after that this completes immediately with the
+     * snapshot while any refresh or retry runs in the background. While the
+     * server is down the catalog is empty rather than a wait for a timeout.
+     */
+    Mono<Map<String, String>> toolCatalog() {
+        // suppressCancel: one chat going away must not cancel the shared fetch
+        return Mono.fromFuture(this::currentCatalog, true);
+    }
+
+    private synchronized CompletableFuture<Map<String, String>> currentCatalog() {
+        if (down) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        boolean retryDue = failedFetches > 0 && System.nanoTime() - retryAtNanos >= 0;
+        if (fetching == null && (stale || retryDue)) {
+            fetchCatalog();
+        }
+        Map<String, String> current = catalog;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        return fetching != null ? fetching : CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    private synchronized void fetchCatalog() {
+        stale = false;
+        CompletableFuture<Map<String, String>> fetch = listTools().toFuture();
+        fetching = fetch;
+        fetch.whenComplete((tools, error) -> onCatalogFetched(fetch, tools, error));
+    }
+
+    private synchronized void onCatalogFetched(CompletableFuture<Map<String, String>> fetch,
+            Map<String, String> tools, Throwable error) {
+        if (fetching == fetch) {
+            fetching = null;
+        }
+        Map<String, String> previous = catalog;
+        if (error != null) {
+            failedFetches++;
+            long backoff = Math.min(CATALOG_RETRY_MAX.toNanos(),
+                    CATALOG_RETRY_MIN.toNanos() << Math.min(failedFetches - 1, 20));
+            retryAtNanos = System.nanoTime() + backoff;
+            logger.error("Failed to fetch MCP tool catalog from {} ({} in a row, retrying in {} ms): {}", name,
+                    failedFetches, backoff / 1_000_000, error.getMessage());
+            tools = previous != null ? previous : Collections.emptyMap();
+        } else {
+            failedFetches = 0;
+            logger.info("MCP tool catalog of {}: {} tools", name, tools.size());
+        }
+        if (!tools.equals(previous)) {
+            catalog = tools;
+            catalogChanged.run();
+        }
+        if (stale && fetching == null && error == null) {
+            // Changed again while this fetch was running
+            fetchCatalog();
+        }
+    }
+
+    /** Fetches tool names and descriptions from the server, bypassing the cached catalog. */
+    Mono<Map<String, String>> listTools() {
+        return Mono.fromFuture(() -> rpc.request("tools/list", mapper.createObjectNode(), LIST_TOOLS_TIMEOUT))
+                .map(result -> {
+                    Map<String, String> tools = new LinkedHashMap<>();
+                    JsonNode toolsNode = result.path("tools");
+                    if (toolsNode.isArray()) {
+                        for (JsonNode t : toolsNode) {
+                            String name = t.path("name").asText();
+                            String desc = t.path("description").asText("");
+                            tools.put(name, desc);
+                        }
+                    }
+                    return Collections.unmodifiableMap(tools);
+                });
+    }
+}
@@ -0,0 +1,31 @@
+package com.nisarg.agentic.demo.model;
+
+/**
+ * One event on the chat stream. Complete lines ("Step 0", "Thought: ...",
+ * "Final Answer: ...") have no type and go out as plain SSE messages, as
+ * before. While the model is still writing, the new text of the thought and
+ * of the final answer goes out as {@code thought-token} and
+ * {@code answer-token} events, ahead of the complete line. Clients that
+ * ignore typed events see the same stream as without token streaming.
+ */
+public record AgentEvent(String type, String data) {
+
+    public static final String THOUGHT_TOKEN = "thought-token";
+    public static final String ANSWER_TOKEN = "answer-token";
+
+    public static AgentEvent message(String data) {
+        return new AgentEvent(null, data);
+    }
+
+    public static AgentEvent thoughtToken(String text) {
+        return new AgentEvent(THOUGHT_TOKEN, text);
+    }
+
+    public static AgentEvent answerToken(String text) {
+        return new AgentEvent(ANSWER_TOKEN, text);
+    }
+
+    public boolean isToken() {
+        return type != null;
+    }
+}
@@ -3,10 +3,15 @@ package com.nisarg.agentic.demo.model;
 public class ChatRequest {
     private String userId;
     private String prompt;
+    // Opt-in delay between events for clients that want a paced stream; 0 sends each event at once
+    private int paceMillis;
 
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
     public String getPrompt() { return prompt; }
     public void setPrompt(String prompt) { this.prompt = prompt; }
+
+    public int getPaceMillis() { return paceMillis; }
+    public void setPaceMillis(int paceMillis) { this.paceMillis = paceMillis; }
 }
\ No newline at end of file
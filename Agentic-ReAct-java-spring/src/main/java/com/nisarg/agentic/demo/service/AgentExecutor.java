@@ -0,0 +1,112 @@
+package com.nisarg.agentic.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs the agents' blocking work (Gemini's synchronous SDK, V1's whole chat
+ * loop) on virtual threads named {@code agent-N}. Blocking there costs no
+ * platform thread, so the number of concurrent chats is bounded by
+ * {@code AGENT_MAX_CONCURRENCY} rather than by a thread pool.
+ *
+ * Work is tied to its subscriber: when the SSE client disconnects, a task
+ * that has not started yet never starts, and a running one is interrupted,
+ * so no further LLM or tool calls are made for that chat. Tasks beyond the
+ * cap wait for a permit on their own virtual thread.
+ */
+@Component
+public class AgentExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(AgentExecutor.class);
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("agent-", 0).factory());
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public AgentExecutor() {
+        this(Integer.parseInt(System.getenv().getOrDefault("AGENT_MAX_CONCURRENCY", "1000")));
+    }
+
+    public AgentExecutor(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        logger.info("Agent executor: virtual threads, at most {} tasks at once", maxConcurrency);
+    }
+
+    /** Runs one blocking call, e.g. an LLM request. Cancelling the Mono interrupts it. */
+    public <T> Mono<T> call(Callable<T> call) {
+        return Mono.create(sink -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            Future<?> task = executor.submit(() -> {
+                try {
+                    sink.success(withPermit(call));
+                } catch (Throwable e) {
+                    // After a cancel the failure is just the interrupt; nobody is listening
+                    if (!cancelled.get()) {
+                        sink.error(e);
+                    }
+                }
+            });
+            sink.onCancel(() -> {
+                cancelled.set(true);
+                task.cancel(true);
+            });
+        });
+    }
+
+    /**
+     * Runs a blocking loop that emits into {@code body}'s sink. The loop should
+     * check {@link FluxSink#isCancelled()} before each expensive step; cancelling
+     * also interrupts whatever call it is blocked in.
+     */
+    public <T> Flux<T> stream(Consumer<FluxSink<T>> body) {
+        return Flux.create(sink -> {
+            Future<?> task = executor.submit(() -> {
+                try {
+                    withPermit(() -> {
+                        body.accept(sink);
+                        return null;
+                    });
+                    sink.complete();
+                } catch (Throwable e) {
+                    if (!sink.isCancelled()) {
+                        sink.error(e);
+                    }
+                }
+            });
+            sink.onCancel(() -> task.cancel(true));
+        });
+    }
+
+    private <T> T withPermit(Callable<T> call) throws Exception {
+        permits.acquire();
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Tasks holding a permit right now. */
+    public int active() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
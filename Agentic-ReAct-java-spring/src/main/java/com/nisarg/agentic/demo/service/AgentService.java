@@ -3,14 +3,19 @@ package com.nisarg.agentic.demo.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nisarg.agentic.demo.gemini.GeminiClient;
+import com.nisarg.agentic.demo.gemini.TokenUsage;
 import com.nisarg.agentic.demo.logging.AgentLogger;
 import com.nisarg.agentic.demo.mcp.MCPClient;
+import com.nisarg.agentic.demo.model.AgentEvent;
+import com.nisarg.agentic.demo.util.JsonFieldStream;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Mono;
 
-import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AgentService {
@@ -18,111 +23,184 @@ public class AgentService {
     private final GeminiClient gemini;
     private final MCPClient mcp;
     private final AgentLogger agentLogger;
+    private final AgentExecutor executor;
+    private final DistributionSummary prefixTokensSaved;
+    private final DistributionSummary promptTokens;
     private final ObjectMapper mapper = new ObjectMapper();
     private final int MAX_STEPS = 6;
+    // Tool calls of one step that may be in flight at once
+    private final int toolFanOut = Integer.parseInt(System.getenv().getOrDefault("AGENT_TOOL_FAN_OUT", "4"));
 
-    public AgentService(GeminiClient gemini, MCPClient mcp, AgentLogger agentLogger) {
+    public AgentService(GeminiClient gemini, MCPClient mcp, AgentLogger agentLogger, AgentExecutor executor,
+            MeterRegistry meters) {
         this.gemini = gemini;
         this.mcp = mcp;
         this.agentLogger = agentLogger;
+        this.executor = executor;
+        this.prefixTokensSaved = DistributionSummary.builder("agent.prompt.prefix.tokens.saved")
+                .description("Prompt tokens per chat served from Gemini's context cache")
+                .baseUnit("tokens")
+                .register(meters);
+        this.promptTokens = DistributionSummary.builder("agent.prompt.tokens")
+                .description("Prompt tokens per chat")
+                .baseUnit("tokens")
+                .register(meters);
     }
 
-    public Flux<String> chatStream(String userId, String prompt) {
-        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
-
-        new Thread(() -> {
-            try {
-                sink.tryEmitNext("Start: processing query -> " + prompt);
-
-                // 1) get tool list from MCP (name -> description)
-                Map<String, String> tools = Optional.ofNullable(mcp.listTools())
-                        .orElse(Collections.emptyMap());
-
-                List<Map<String, String>> history = new ArrayList<>();
-                String finalAnswer = null;
-
-                // 2) Step loop (LangGraph style)
-                for (int step = 0; step < MAX_STEPS; step++) {
-                    sink.tryEmitNext("Step " + step);
-
-                    // Build context from previous tool calls
-                    StringBuilder contextBuilder = new StringBuilder();
-                    for (Map<String, String> h : history) {
-                        contextBuilder.append("Action: ").append(h.get("action"))
-                                .append(", Input: ").append(h.get("actionInput"))
-                                .append(", Observation: ").append(h.get("observation"))
-                                .append("\n");
-                    }
-                    String context = contextBuilder.toString();
-
-                    // Ask Gemini what to do next
-                    String thoughtRaw = gemini.think(prompt, tools, context);
-                    agentLogger.log("llm_thought_raw", thoughtRaw);
-
-                    JsonNode node;
-                    try {
-                        thoughtRaw = thoughtRaw.replace("```json", "").replace("```", "");
-                        node = mapper.readTree(thoughtRaw);
-                    } catch (Exception e) {
-                        sink.tryEmitNext("Could not parse LLM JSON, fallback to direct response");
-                        finalAnswer = gemini.respond(prompt, context);
-                        sink.tryEmitNext("Final Answer: " + finalAnswer);
-                        break;
-                    }
-
-                    String thought = node.path("thought").asText("");
-                    String action = node.path("action").asText("none");
-                    String actionInput = node.path("action_input").asText("");
-                    finalAnswer = node.path("final_answer").asText(null);
-
-                    sink.tryEmitNext("Thought: " + thought);
-
-                    if (finalAnswer != null && !finalAnswer.trim().isEmpty()) {
-                        sink.tryEmitNext("Final Answer: " + finalAnswer);
-                        break;
-                    }
-
-                    if (!"none".equalsIgnoreCase(action)) {
-                        sink.tryEmitNext("Action: " + action + " (input: " + actionInput + ")");
-
-                        String observation;
-                        try {
-                            observation = mcp.callTool(action, actionInput);
-                        } catch (Exception ex) {
-                            observation = "Tool execution failed: " + ex.getMessage();
-                        }
-
-                        sink.tryEmitNext("Observation: " + observation);
+    /**
+     * Runs the ReAct loop as one reactive pipeline: MCP calls are composed
+     * without blocking, and only the (blocking) Gemini calls run on the
+     * {@link AgentExecutor}'s virtual threads. Nothing holds a thread while a
+     * tool call is in flight, and cancelling the subscription stops the loop,
+     * interrupting a Gemini call in progress.
+     *
+     * Events go out as soon as they are produced. Gemini's responses are
+     * streamed, and the thought and final answer are emitted as
+     * {@link AgentEvent} tokens while the model writes them, followed by the
+     * complete line.
+     *
+     * A step may ask for several tools at once ({@code actions}); they are
+     * called concurrently, at most {@code AGENT_TOOL_FAN_OUT} at a time, and
+     * their observations are reported and added to the history in the order
+     * the model listed them, whatever order they complete in.
+     *
+     * Token counts of the chat's Gemini calls are recorded when it ends, as
+     * {@code agent.prompt.tokens} and {@code agent.prompt.prefix.tokens.saved}.
+     */
+    public Flux<AgentEvent> chatStream(String userId, String prompt) {
+        return Flux.defer(() -> {
+            TokenUsage usage = new TokenUsage();
+            Flux<AgentEvent> steps = Flux.concat(
+                    message("Start: processing query -> " + prompt),
+                    // 1) get tool list from MCP (name -> description), cached per session
+                    mcp.toolCatalog()
+                            .onErrorReturn(Collections.emptyMap())
+                            .flatMapMany(tools -> step(prompt, tools, new ArrayList<>(), 0, usage)),
+                    message("End."));
+
+            return steps.onErrorResume(e -> message("Error: " + e.getMessage()))
+                    .doFinally(signal -> record(usage));
+        });
+    }
+
+    private void record(TokenUsage usage) {
+        promptTokens.record(usage.getPromptTokens());
+        prefixTokensSaved.record(usage.getCachedTokens());
+        agentLogger.log("prefix_tokens_saved", usage.getCachedTokens() + " of " + usage.getPromptTokens());
+    }
 
+    /** One step of the loop (LangGraph style), followed by the remaining steps when a tool was called. */
+    private Flux<AgentEvent> step(String prompt, Map<String, String> tools, List<Map<String, String>> history, int step,
+            TokenUsage usage) {
+        if (step >= MAX_STEPS) {
+            return message("Could not resolve query after max steps.");
+        }
+
+        // Build context from previous tool calls
+        StringBuilder contextBuilder = new StringBuilder();
+        for (Map<String, String> h : history) {
+            contextBuilder.append("Action: ").append(h.get("action"))
+                    .append(", Input: ").append(h.get("actionInput"))
+                    .append(", Observation: ").append(h.get("observation"))
+                    .append("\n");
+        }
+        String context = contextBuilder.toString();
+
+        // Ask Gemini what to do next, streaming the thought (and answer) as it is written
+        AtomicReference<String> thoughtRaw = new AtomicReference<>();
+        Flux<AgentEvent> thinking = executor.stream(sink -> thoughtRaw.set(gemini.think(prompt, tools, context,
+                new JsonFieldStream()
+                        .on("thought", text -> sink.next(AgentEvent.thoughtToken(text)))
+                        .on("final_answer", text -> sink.next(AgentEvent.answerToken(text))), usage)));
+
+        return Flux.concat(message("Step " + step), thinking,
+                Flux.defer(() -> decide(prompt, tools, history, step, context, thoughtRaw.get(), usage)));
+    }
+
+    /** Acts on Gemini's JSON decision: answer, call tools and loop, or fall back to a direct answer. */
+    private Flux<AgentEvent> decide(String prompt, Map<String, String> tools, List<Map<String, String>> history,
+            int step, String context, String thoughtRaw, TokenUsage usage) {
+        agentLogger.log("llm_thought_raw", thoughtRaw);
+
+        JsonNode node;
+        try {
+            node = mapper.readTree(thoughtRaw.replace("```json", "").replace("```", ""));
+        } catch (Exception e) {
+            return Flux.concat(
+                    message("Could not parse LLM JSON, fallback to direct response"),
+                    finalAnswer(prompt, context, usage));
+        }
+
+        String thought = node.path("thought").asText("");
+        List<ToolCall> calls = toolCalls(node);
+        String finalAnswer = node.path("final_answer").asText(null);
+
+        Flux<AgentEvent> thoughtEvent = message("Thought: " + thought);
+
+        if (finalAnswer != null && !finalAnswer.trim().isEmpty()) {
+            return Flux.concat(thoughtEvent, message("Final Answer: " + finalAnswer));
+        }
+
+        if (!calls.isEmpty()) {
+            Flux<AgentEvent> actions = Flux.fromIterable(calls)
+                    .map(call -> AgentEvent.message("Action: " + call.action() + " (input: " + call.input() + ")"));
+            // flatMapSequential runs the calls concurrently but emits their results in call order
+            Flux<AgentEvent> observed = Flux.fromIterable(calls)
+                    .flatMapSequential(call -> mcp.callToolAsync(call.action(), call.input())
+                            .onErrorResume(ex -> Mono.just("Tool execution failed: " + ex.getMessage()))
+                            .map(observation -> {
+                                Map<String, String> stepRecord = new HashMap<>();
+                                stepRecord.put("action", call.action());
+                                stepRecord.put("actionInput", call.input());
+                                stepRecord.put("observation", observation);
+                                return stepRecord;
+                            }), toolFanOut)
+                    .map(stepRecord -> {
                         // Record in history
-                        Map<String, String> stepRecord = new HashMap<>();
-                        stepRecord.put("action", action);
-                        stepRecord.put("actionInput", actionInput);
-                        stepRecord.put("observation", observation);
                         history.add(stepRecord);
+                        return AgentEvent.message("Observation: " + stepRecord.get("observation"));
+                    });
+            return Flux.concat(thoughtEvent, actions, observed,
+                    Flux.defer(() -> step(prompt, tools, history, step + 1, usage))); // loop again
+        }
+
+        // If no tool and no final answer -> fallback
+        return Flux.concat(thoughtEvent, finalAnswer(prompt, context, usage));
+    }
 
-                        continue; // loop again
-                    }
-
-                    // If no tool and no final answer -> fallback
-                    finalAnswer = gemini.respond(prompt, context);
-                    sink.tryEmitNext("Final Answer: " + finalAnswer);
-                    break;
-                }
+    /** The step's tool calls: the {@code actions} array, or else the single {@code action}. */
+    private static List<ToolCall> toolCalls(JsonNode node) {
+        List<ToolCall> calls = new ArrayList<>();
+        for (JsonNode call : node.path("actions")) {
+            addToolCall(calls, call);
+        }
+        if (calls.isEmpty()) {
+            addToolCall(calls, node);
+        }
+        return calls;
+    }
 
-                if (finalAnswer == null || finalAnswer.trim().isEmpty()) {
-                    sink.tryEmitNext("Could not resolve query after max steps.");
-                }
+    private static void addToolCall(List<ToolCall> calls, JsonNode node) {
+        String action = node.path("action").asText("none");
+        if (action.isBlank() || "none".equalsIgnoreCase(action)) {
+            return;
+        }
+        // Models sometimes give the input as an object rather than a JSON string
+        JsonNode input = node.path("action_input");
+        calls.add(new ToolCall(action, input.isContainerNode() ? input.toString() : input.asText("")));
+    }
 
-                sink.tryEmitNext("End.");
-                sink.tryEmitComplete();
+    private record ToolCall(String action, String input) {
+    }
 
-            } catch (Exception e) {
-                sink.tryEmitNext("Error: " + e.getMessage());
-                sink.tryEmitComplete();
-            }
-        }).start();
+    private Flux<AgentEvent> finalAnswer(String prompt, String context, TokenUsage usage) {
+        AtomicReference<String> answer = new AtomicReference<>();
+        Flux<AgentEvent> answering = executor.stream(sink -> answer.set(gemini.respond(prompt, context,
+                text -> sink.next(AgentEvent.answerToken(text)), usage)));
+        return Flux.concat(answering, Flux.defer(() -> message("Final Answer: " + answer.get())));
+    }
 
-        return sink.asFlux().delayElements(Duration.ofMillis(250));
+    private static Flux<AgentEvent> message(String data) {
+        return Flux.just(AgentEvent.message(data));
     }
 }
@@ -7,9 +7,7 @@ import com.nisarg.agentic.demo.logging.AgentLogger;
 import com.nisarg.agentic.demo.mcp.MCPClient;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
 
-import java.time.Duration;
 import java.util.Map;
 
 @Service
@@ -18,29 +16,34 @@ public class AgentServiceV1 {
     private final GeminiClient gemini;
     private final MCPClient mcp;
     private final AgentLogger agentLogger;
+    private final AgentExecutor executor;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public AgentServiceV1(GeminiClient gemini, MCPClient mcp, AgentLogger agentLogger) {
+    public AgentServiceV1(GeminiClient gemini, MCPClient mcp, AgentLogger agentLogger, AgentExecutor executor) {
         this.gemini = gemini;
         this.mcp = mcp;
         this.agentLogger = agentLogger;
+        this.executor = executor;
     }
 
+    /**
+     * Runs the whole chat as one blocking loop on an agent virtual thread. If
+     * the client goes away the loop is interrupted and makes no further calls.
+     */
     public Flux<String> chatStream(String userId, String prompt) {
-        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
-
-        new Thread(() -> {
+        return executor.stream(sink -> {
             try {
-                sink.tryEmitNext("LLM: preparing reasoning...");
+                sink.next("LLM: preparing reasoning...");
 
                 // 1) get tool list from MCP (name -> description)
                 Map<String, String> tools = mcp.listTools(); // ensure MCPClient exposes this method
 
                 // 2) ask Gemini for a JSON-formatted thought/action
                 //without history
+                if (sink.isCancelled()) return;
                 String thoughtRaw = gemini.think(prompt, tools, null);
                 agentLogger.log("llm_thought_raw", thoughtRaw);
-                sink.tryEmitNext("🤔 " + (thoughtRaw.length() > 200 ? thoughtRaw.substring(0, 200) + "..." : thoughtRaw));
+                sink.next("🤔 " + (thoughtRaw.length() > 200 ? thoughtRaw.substring(0, 200) + "..." : thoughtRaw));
 
                 // 3) parse Gemini's JSON output (thought/action/action_input/final_answer)
                 JsonNode node;
@@ -49,50 +52,55 @@ public class AgentServiceV1 {
                     node = mapper.readTree(thoughtRaw);
                 } catch (Exception e) {
                     // If parsing fails, treat whole response as thought text (no action)
-                    sink.tryEmitNext("⚠️ Could not parse LLM JSON output, treating as thought text");
+                    sink.next("⚠️ Could not parse LLM JSON output, treating as thought text");
                     String fallbackThought = thoughtRaw;
-                    sink.tryEmitNext("🤔 " + fallbackThought);
+                    sink.next("🤔 " + fallbackThought);
                     // Ask Gemini directly for an answer when JSON parsing fails:
+                    if (sink.isCancelled()) return;
                     String fallbackAnswer = gemini.respond(prompt, null);
-                    sink.tryEmitNext("💡 Final Answer: " + fallbackAnswer);
-                    sink.tryEmitComplete();
+                    sink.next("💡 Final Answer: " + fallbackAnswer);
                     return;
                 }
 
                 String thought = node.path("thought").asText("");
-                String action = node.path("action").asText("none");
-                String actionInput = node.path("action_input").asText("");
+                // This agent makes a single tool call: the first the model asks for
+                JsonNode call = node.path("actions").path(0);
+                if (call.isMissingNode()) {
+                    call = node;
+                }
+                String action = call.path("action").asText("none");
+                String actionInput = call.path("action_input").asText("");
                 String finalAnswer = node.path("final_answer").asText(null);
 
-                sink.tryEmitNext("🤔 Thought: " + thought);
+                sink.next("🤔 Thought: " + thought);
 
                 // 4) If model asked to call a tool:
                 if (!"none".equalsIgnoreCase(action) && (finalAnswer == null || finalAnswer.isBlank())) {
-                    sink.tryEmitNext("⚡ Action: " + action + " (input: " + actionInput + ")");
+                    sink.next("⚡ Action: " + action + " (input: " + actionInput + ")");
 
                     // Send tool call via MCP's /message endpoint; MCP server should post result back on SSE
+                    if (sink.isCancelled()) return;
                     String observation = mcp.callTool(action, actionInput);
-                    sink.tryEmitNext("📥 Observation: " + observation);
+                    sink.next("📥 Observation: " + observation);
 
                     // 5) Feed observation back to Gemini for final answer
+                    if (sink.isCancelled()) return;
                     String followup = gemini.respond(prompt, observation);
-                    sink.tryEmitNext("💡 Final Answer: " + followup);
+                    sink.next("💡 Final Answer: " + followup);
                 } else if (finalAnswer != null && !finalAnswer.isBlank()) {
                     // Model already provided final answer
-                    sink.tryEmitNext("💡 Final Answer: " + finalAnswer);
+                    sink.next("💡 Final Answer: " + finalAnswer);
                 } else {
                     // No action requested and no final answer -> fallback
+                    if (sink.isCancelled()) return;
                     String fallback = gemini.respond(prompt, null);
-                    sink.tryEmitNext("💡 Final Answer: " + fallback);
+                    sink.next("💡 Final Answer: " + fallback);
                 }
-
-                sink.tryEmitComplete();
             } catch (Exception e) {
-                sink.tryEmitNext("❌ Error: " + e.getMessage());
-                sink.tryEmitComplete();
+                if (!sink.isCancelled()) {
+                    sink.next("❌ Error: " + e.getMessage());
+                }
             }
-        }).start();
-
-        return sink.asFlux().delayElements(Duration.ofMillis(250));
+        });
     }
 }
@@ -0,0 +1,168 @@
+package com.nisarg.agentic.demo.util;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Follows a JSON object as it streams in and passes the newly arrived part
+ * of selected string fields to a listener, so e.g. the {@code thought} of a
+ * ReAct step can be shown while the model is still writing it. Escapes are
+ * decoded; an escape split across chunks waits for the next chunk.
+ *
+ * Each character is looked at once: the scanner keeps its place, and whether
+ * it is inside a string or an escape, between chunks. Only a string followed
+ * by {@code :} counts as a key, so field names quoted inside other values do
+ * not match. Each field streams its first value only.
+ *
+ * Not thread-safe; feed it chunks in order from one thread.
+ */
+public class JsonFieldStream implements Consumer<String> {
+
+    private enum State { STRUCTURE, AFTER_COLON, STRING, ESCAPE, UNICODE }
+
+    private final Map<String, Consumer<String>> listeners = new LinkedHashMap<>();
+    private final Set<String> streamed = new HashSet<>();
+    private int longestField;
+
+    private State state = State.STRUCTURE;
+    // Key candidate being read; only kept up to one char past the longest field name
+    private final StringBuilder token = new StringBuilder();
+    // The string just closed, while it may still turn out to be a key
+    private String pendingKey;
+    // Key whose value comes next, after the colon
+    private String key;
+    // Whether the current string is a value rather than a key candidate, and who gets it
+    private boolean inValue;
+    private Consumer<String> target;
+    private final StringBuilder out = new StringBuilder();
+    private int unicode;
+    private int unicodeDigits;
+
+    /** Passes new text of {@code field}'s value to {@code listener}. */
+    public JsonFieldStream on(String field, Consumer<String> listener) {
+        listeners.put(field, listener);
+        longestField = Math.max(longestField, field.length());
+        return this;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            scan(chunk.charAt(i));
+        }
+        flush(false);
+    }
+
+    private void scan(char c) {
+        switch (state) {
+            case STRUCTURE -> {
+                if (c == '"') {
+                    startString(false);
+                } else if (c == ':' && pendingKey != null) {
+                    key = pendingKey;
+                    pendingKey = null;
+                    state = State.AFTER_COLON;
+                } else if (!Character.isWhitespace(c)) {
+                    pendingKey = null;
+                }
+            }
+            case AFTER_COLON -> {
+                if (c == '"') {
+                    startString(true);
+                } else if (!Character.isWhitespace(c)) {
+                    key = null;
+                    state = State.STRUCTURE;
+                    scan(c);
+                }
+            }
+            case STRING -> {
+                if (c == '\\') {
+                    state = State.ESCAPE;
+                } else if (c == '"') {
+                    endString();
+                } else {
+                    append(c);
+                }
+            }
+            case ESCAPE -> {
+                if (c == 'u') {
+                    unicode = 0;
+                    unicodeDigits = 0;
+                    state = State.UNICODE;
+                    return;
+                }
+                append(switch (c) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    case 'r' -> '\r';
+                    case 'b' -> '\b';
+                    case 'f' -> '\f';
+                    default -> c;
+                });
+                state = State.STRING;
+            }
+            case UNICODE -> {
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    // Malformed escape: keep what follows it rather than fail the stream
+                    append('\uFFFD');
+                    state = State.STRING;
+                    scan(c);
+                    return;
+                }
+                unicode = unicode * 16 + digit;
+                if (++unicodeDigits == 4) {
+                    append((char) unicode);
+                    state = State.STRING;
+                }
+            }
+        }
+    }
+
+    private void startString(boolean value) {
+        inValue = value;
+        target = value && key != null && !streamed.contains(key) ? listeners.get(key) : null;
+        if (target != null) {
+            streamed.add(key);
+        }
+        key = null;
+        token.setLength(0);
+        state = State.STRING;
+    }
+
+    private void endString() {
+        if (inValue) {
+            flush(true);
+            target = null;
+        } else {
+            pendingKey = token.toString();
+        }
+        state = State.STRUCTURE;
+    }
+
+    private void append(char c) {
+        if (target != null) {
+            out.append(c);
+        } else if (!inValue && token.length() <= longestField) {
+            token.append(c);
+        }
+    }
+
+    /** Hands the decoded text so far to the listener; half a surrogate pair waits for its other half. */
+    private void flush(boolean ended) {
+        if (target == null || out.isEmpty()) {
+            return;
+        }
+        int end = out.length();
+        if (!ended && Character.isHighSurrogate(out.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 0) {
+            target.accept(out.substring(0, end));
+            out.delete(0, end);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.nisarg.agentic.demo.gemini;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PromptPrefixCacheTest {
+
+    private final PromptPrefixCache cache = new PromptPrefixCache(false, Duration.ofMinutes(10));
+
+    @Test
+    void reusesThePrefixOfASnapshotAndOfAnEqualOne() {
+        Map<String, String> tools = Map.of("weather", "Current weather for a city");
+        PromptPrefixCache.Prefix prefix = cache.get(tools);
+
+        assertSame(prefix, cache.get(tools));
+        assertSame(prefix, cache.get(Map.copyOf(Map.of("weather", "Current weather for a city"))));
+        assertNotSame(prefix, cache.get(Map.of("search", "Searches the web")));
+    }
+
+    @Test
+    void rebuildsTheLeastRecentlyUsedCatalogOnceEvicted() {
+        Map<String, String> first = Map.of("tool0", "first");
+        PromptPrefixCache.Prefix prefix = cache.get(first);
+        for (int i = 1; i <= 16; i++) {
+            cache.get(Map.of("tool" + i, "another"));
+        }
+
+        assertNotSame(prefix, cache.get(first));
+    }
+}
@@ -0,0 +1,182 @@
+package com.nisarg.agentic.demo.loadtest;
+
+import ch.qos.logback.classic.Level;
+import com.nisarg.agentic.demo.gemini.GeminiClient;
+import com.nisarg.agentic.demo.logging.AgentLogger;
+import com.nisarg.agentic.demo.mcp.MCPClient;
+import com.nisarg.agentic.demo.model.AgentEvent;
+import com.nisarg.agentic.demo.service.AgentExecutor;
+import com.nisarg.agentic.demo.service.AgentService;
+import com.nisarg.agentic.demo.service.AgentServiceV1;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Load test for both agent services: starts N chats at once against
+ * {@link StubGeminiClient} and {@link StubMcpServer}, so the numbers measure
+ * the agent's own execution model rather than Gemini or a real tool. In
+ * {@code http} mode the real {@link GeminiClient} is used instead, pointed at
+ * {@link StubGeminiServer}, which adds the SDK and its HTTP client.
+ *
+ * Reports chats/sec, chat latency p50/p99 and peak platform threads per
+ * service, then starts a batch of chats and disconnects them mid-step to
+ * check that no further LLM or tool calls are made for them.
+ *
+ * <pre>
+ * cd Agentic-ReAct-java-spring
+ * java -cp ... com.nisarg.agentic.demo.loadtest.AgentLoadBenchmark 5000 200 50 1000 stub
+ * </pre>
+ * Arguments: concurrent chats, stub LLM latency ms, stub tool latency ms,
+ * AGENT_MAX_CONCURRENCY, {@code stub} or {@code http}. The stub MCP server listens on 8081, the port in
+ * the module's {@code mcp.json} and the default {@code MCP_SSE_URL}.
+ */
+public class AgentLoadBenchmark {
+
+    private static final String ONE_CITY = "What is the weather in Pune?";
+    private static final String THREE_CITIES = "What is the weather in Pune, Mumbai and Delhi?";
+
+    public static void main(String[] args) throws Exception {
+        int chats = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long llmLatency = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        long toolLatency = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        int maxConcurrency = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        boolean http = args.length > 4 && "http".equals(args[4]);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        try (StubMcpServer mcpServer = new StubMcpServer(8081, toolLatency);
+             StubGeminiServer geminiServer = new StubGeminiServer(0, llmLatency)) {
+            GeminiClient gemini;
+            LongSupplier llmCalls;
+            if (http) {
+                gemini = new GeminiClient("stub-key", "gemini-stub", geminiServer.baseUrl(), 60_000, maxConcurrency,
+                        true, Duration.ofHours(1));
+                llmCalls = geminiServer::calls;
+            } else {
+                StubGeminiClient stub = new StubGeminiClient(llmLatency);
+                gemini = stub;
+                llmCalls = stub::calls;
+            }
+            MCPClient mcp = new MCPClient(WebClient.builder());
+            mcp.connect();
+            mcp.toolCatalog().block();
+            AgentExecutor executor = new AgentExecutor(maxConcurrency);
+            SimpleMeterRegistry meters = new SimpleMeterRegistry();
+            AgentService service = new AgentService(gemini, mcp, new AgentLogger(), executor, meters);
+            AgentServiceV1 serviceV1 = new AgentServiceV1(gemini, mcp, new AgentLogger(), executor);
+
+            System.out.printf("%d chats, %s LLM %d ms, tool %d ms, at most %d agent tasks at once%n",
+                    chats, http ? "HTTP stub" : "in-process", llmLatency, toolLatency, maxConcurrency);
+            // Warm-up
+            run("warm-up", Math.min(chats, 500), lines(service), ONE_CITY, false);
+            run("AgentService", chats, lines(service), ONE_CITY, true);
+            run("AgentServiceV1", chats, serviceV1::chatStream, ONE_CITY, true);
+            if (!http) {
+                // The same three lookups, one tool call per step and all in one step
+                AgentService oneToolPerStep = new AgentService(new StubGeminiClient(llmLatency, false), mcp,
+                        new AgentLogger(), executor, meters);
+                run("AgentService, 3 cities, one tool per step", chats, lines(oneToolPerStep), THREE_CITIES, true);
+                run("AgentService, 3 cities, parallel tools", chats, lines(service), THREE_CITIES, true);
+            }
+
+            cancellation(chats / 5, llmLatency, service, llmCalls, mcpServer, executor);
+            if (http) {
+                System.out.printf("%nGemini stub: %d requests over %d connections%n",
+                        geminiServer.calls(), geminiServer.connections());
+                DistributionSummary prompt = meters.get("agent.prompt.tokens").summary();
+                DistributionSummary saved = meters.get("agent.prompt.prefix.tokens.saved").summary();
+                System.out.printf("Prompt tokens per chat: %.0f, of which from the context cache: %.0f%n",
+                        prompt.mean(), saved.mean());
+            }
+            executor.shutdown();
+            gemini.close();
+        }
+        System.exit(0);
+    }
+
+    private static BiFunction<String, String, Flux<String>> lines(AgentService service) {
+        return (userId, prompt) -> service.chatStream(userId, prompt)
+                .filter(event -> !event.isToken())
+                .map(AgentEvent::data);
+    }
+
+    private static void run(String name, int chats, BiFunction<String, String, Flux<String>> chat, String prompt,
+            boolean report) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        CountDownLatch done = new CountDownLatch(chats);
+        AtomicInteger answered = new AtomicInteger();
+        long[] latencies = new long[chats];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < chats; i++) {
+            int chatIndex = i;
+            long chatStart = System.nanoTime();
+            chat.apply("user-" + i, prompt)
+                    .doOnNext(event -> {
+                        if (event.contains("Final Answer")) {
+                            answered.incrementAndGet();
+                        }
+                    })
+                    .doFinally(signal -> {
+                        latencies[chatIndex] = System.nanoTime() - chatStart;
+                        done.countDown();
+                    })
+                    .subscribe();
+        }
+        if (!done.await(10, TimeUnit.MINUTES)) {
+            System.out.printf("%s: %d chats still running after 10 minutes%n", name, done.getCount());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!report) {
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%n%s: %d chats in %.2f s, %.0f chats/sec, %d answered%n",
+                name, chats, seconds, chats / seconds, answered.get());
+        System.out.printf("  chat latency p50 %d ms, p99 %d ms; peak platform threads %d%n",
+                latencies[chats / 2] / 1_000_000, latencies[chats * 99 / 100] / 1_000_000,
+                threads.getPeakThreadCount());
+    }
+
+    /** Disconnects chats while their first LLM call is running; nothing may happen for them afterwards. */
+    private static void cancellation(int chats, long llmLatency, AgentService service, LongSupplier llmCalls,
+            StubMcpServer mcpServer, AgentExecutor executor) throws InterruptedException {
+        long llmBefore = llmCalls.getAsLong();
+        long toolsBefore = mcpServer.toolCalls();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < chats; i++) {
+            subscriptions.add(service.chatStream("user-" + i, ONE_CITY).subscribe());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (llmCalls.getAsLong() - llmBefore < chats && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(llmLatency / 2);
+        subscriptions.forEach(Disposable::dispose);
+        long llmAtCancel = llmCalls.getAsLong();
+        Thread.sleep(llmLatency * 5);
+
+        System.out.printf("%ncancellation: %d chats disconnected during their first LLM call%n", chats);
+        System.out.printf("  LLM calls started %d (before disconnect %d), tool calls %d, agent tasks still running %d%n",
+                llmCalls.getAsLong() - llmBefore, llmAtCancel - llmBefore, mcpServer.toolCalls() - toolsBefore,
+                executor.active());
+    }
+}
@@ -0,0 +1,94 @@
+package com.nisarg.agentic.demo.loadtest;
+
+import com.nisarg.agentic.demo.gemini.GeminiClient;
+import com.nisarg.agentic.demo.gemini.TokenUsage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Stands in for Gemini with a fixed, blocking latency per call, like the
+ * synchronous SDK. When streaming, the latency is spread over a few chunks.
+ * Asks for the weather tool for each city in the query that has no
+ * observation yet, all in one step or (without parallel tools) one city per
+ * step, and answers once every city has one.
+ */
+class StubGeminiClient extends GeminiClient {
+
+    private static final int CHUNKS = 4;
+    private static final Pattern CITIES = Pattern.compile("in (.+?)\\?");
+
+    private final long latencyMillis;
+    private final boolean parallelTools;
+    private final AtomicLong calls = new AtomicLong();
+
+    StubGeminiClient(long latencyMillis) {
+        this(latencyMillis, true);
+    }
+
+    StubGeminiClient(long latencyMillis, boolean parallelTools) {
+        this.latencyMillis = latencyMillis;
+        this.parallelTools = parallelTools;
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    @Override
+    public String think(String query, Map<String, String> tools, String context, Consumer<String> onText,
+            TokenUsage usage) {
+        List<String> cities = cities(query);
+        List<String> missing = cities.stream()
+                .filter(city -> context == null || !context.contains(city))
+                .toList();
+        if (missing.isEmpty()) {
+            return generate(onText, "{\"thought\": \"I have the weather\", \"actions\": [], "
+                    + "\"final_answer\": \"Sunny in " + String.join(", ", cities) + "\"}");
+        }
+        String actions = (parallelTools ? missing : missing.subList(0, 1)).stream()
+                .map(city -> "{\"action\": \"getWeather\", \"action_input\": \"{\\\"city\\\": \\\"" + city + "\\\"}\"}")
+                .collect(Collectors.joining(", "));
+        return generate(onText, "{\"thought\": \"I need the weather\", \"actions\": [" + actions + "], "
+                + "\"final_answer\": \"\"}");
+    }
+
+    @Override
+    public String respond(String query, String context, Consumer<String> onText, TokenUsage usage) {
+        return generate(onText, "Sunny in " + String.join(", ", cities(query)));
+    }
+
+    /** "What is the weather in Pune, Mumbai and Delhi?" -> Pune, Mumbai, Delhi */
+    private static List<String> cities(String query) {
+        Matcher matcher = CITIES.matcher(query);
+        return matcher.find() ? List.of(matcher.group(1).split(", | and ")) : List.of();
+    }
+
+    private String generate(Consumer<String> onText, String response) {
+        calls.incrementAndGet();
+        if (onText == null) {
+            waitForModel(latencyMillis);
+            return response;
+        }
+        int size = (response.length() + CHUNKS - 1) / CHUNKS;
+        for (int start = 0; start < response.length(); start += size) {
+            waitForModel(latencyMillis / CHUNKS);
+            onText.accept(response.substring(start, Math.min(response.length(), start + size)));
+        }
+        return response;
+    }
+
+    private static void waitForModel(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the model", e);
+        }
+    }
+}
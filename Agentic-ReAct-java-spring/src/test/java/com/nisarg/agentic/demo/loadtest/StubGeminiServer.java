@@ -0,0 +1,144 @@
+package com.nisarg.agentic.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Gemini REST API, for running the real
+ * {@link com.nisarg.agentic.demo.gemini.GeminiClient} (SDK, HTTP client and
+ * all) against it via its base URL. Answers {@code :generateContent} and
+ * {@code :streamGenerateContent?alt=sse} after a fixed latency, with the same
+ * ReAct script as {@link StubGeminiClient}, and counts the TCP connections
+ * it sees so connection reuse shows up in the numbers. Also creates cached
+ * contents, and reports usage with a crude four characters per token, the
+ * cached system instruction counting as cached tokens.
+ */
+class StubGeminiServer implements AutoCloseable {
+
+    static {
+        // Otherwise small responses on kept-alive connections wait out delayed ACKs (~40 ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final int CHUNKS = 4;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final AtomicLong calls = new AtomicLong();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> cachedContents = new ConcurrentHashMap<>();
+
+    StubGeminiServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::generate);
+        server.createContext("/v1beta/cachedContents", this::createCachedContent);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    int connections() {
+        return connections.size();
+    }
+
+    private void createCachedContent(HttpExchange exchange) throws IOException {
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        String name = "cachedContents/" + cachedContents.size();
+        cachedContents.put(name, request.path("systemInstruction").toString());
+        byte[] body = mapper.createObjectNode()
+                .put("name", name)
+                .put("expireTime", Instant.now().plusSeconds(3600).toString())
+                .toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        connections.add(exchange.getRemoteAddress());
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        String contents = request.path("contents").toString();
+        String cached = cachedContents.getOrDefault(request.path("cachedContent").asText(), "");
+        String system = request.path("systemInstruction").toString();
+        String response = script(cached + system + contents);
+        ObjectNode usage = mapper.createObjectNode()
+                .put("promptTokenCount", (cached.length() + system.length() + contents.length()) / 4)
+                .put("cachedContentTokenCount", cached.length() / 4);
+        try {
+            if (exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")) {
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    int size = (response.length() + CHUNKS - 1) / CHUNKS;
+                    for (int start = 0; start < response.length(); start += size) {
+                        Thread.sleep(latencyMillis / CHUNKS);
+                        String chunk = candidate(response.substring(start, Math.min(response.length(), start + size)), usage);
+                        body.write(("data: " + chunk + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                        body.flush();
+                    }
+                }
+            } else {
+                Thread.sleep(latencyMillis);
+                byte[] body = candidate(response, usage).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Asks for the weather tool first, answers once there is an observation. */
+    private static String script(String prompt) {
+        if (!prompt.contains("ReAct")) {
+            return "Sunny in Pune";
+        }
+        if (prompt.contains("Previous steps and observations")) {
+            return "{\"thought\": \"I have the weather\", \"actions\": [], \"final_answer\": \"Sunny in Pune\"}";
+        }
+        return "{\"thought\": \"I need the weather\", \"actions\": [{\"action\": \"getWeather\", "
+                + "\"action_input\": \"{\\\"city\\\": \\\"Pune\\\"}\"}], \"final_answer\": \"\"}";
+    }
+
+    private String candidate(String text, ObjectNode usage) {
+        ObjectNode response = mapper.createObjectNode();
+        ObjectNode candidate = response.putArray("candidates").addObject();
+        candidate.putObject("content").put("role", "model").putArray("parts").addObject().put("text", text);
+        response.set("usageMetadata", usage);
+        return response.toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
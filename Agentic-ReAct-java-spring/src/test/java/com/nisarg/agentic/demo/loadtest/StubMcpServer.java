@@ -0,0 +1,132 @@
+package com.nisarg.agentic.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal MCP server over the SSE transport: announces a message endpoint,
+ * answers initialize, tools/list and tools/call (one {@code getWeather} tool
+ * that echoes its arguments), and sends each response on the stream after a
+ * fixed latency, the way a real server answers asynchronously.
+ */
+public class StubMcpServer implements AutoCloseable {
+
+    static {
+        // Otherwise small responses on kept-alive connections wait out delayed ACKs (~40 ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final Map<String, OutputStream> streams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService responses = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong toolCalls = new AtomicLong();
+    private final AtomicLong toolListings = new AtomicLong();
+    private volatile boolean failToolListings;
+
+    /** @param port 0 for any free port */
+    public StubMcpServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/mcp/sse", this::openStream);
+        server.createContext("/mcp/message", this::message);
+        server.start();
+    }
+
+    long toolCalls() {
+        return toolCalls.get();
+    }
+
+    public String sseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/mcp/sse";
+    }
+
+    public long toolListings() {
+        return toolListings.get();
+    }
+
+    /** Makes tools/list answer with a JSON-RPC error, as a server with a broken catalog would. */
+    public void failToolListings(boolean fail) {
+        this.failToolListings = fail;
+    }
+
+    private void openStream(HttpExchange exchange) throws IOException {
+        String sessionId = UUID.randomUUID().toString();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        streams.put(sessionId, exchange.getResponseBody());
+        send(sessionId, "endpoint", "/mcp/message?sessionId=" + sessionId);
+    }
+
+    private void message(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        String sessionId = query.substring(query.indexOf('=') + 1);
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        exchange.sendResponseHeaders(202, -1);
+        exchange.close();
+        if (!request.hasNonNull("id")) {
+            return;
+        }
+
+        ObjectNode response = mapper.createObjectNode().put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        switch (request.path("method").asText()) {
+            case "initialize" -> response.putObject("result").put("protocolVersion", "2024-11-05");
+            case "tools/list" -> {
+                toolListings.incrementAndGet();
+                if (failToolListings) {
+                    response.putObject("error").put("code", -32603).put("message", "Catalog unavailable");
+                    break;
+                }
+                ArrayNode tools = response.putObject("result").putArray("tools");
+                tools.addObject().put("name", "getWeather").put("description", "Weather for a city, input {\"city\": name}");
+            }
+            case "tools/call" -> {
+                toolCalls.incrementAndGet();
+                response.putObject("result").putArray("content").addObject().put("type", "text")
+                        .put("text", "Sunny, 28C for " + request.path("params").path("arguments"));
+            }
+            default -> response.putObject("error").put("code", -32601).put("message", "Method not found");
+        }
+        responses.schedule(() -> send(sessionId, "message", response.toString()), latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(String sessionId, String event, String data) {
+        OutputStream stream = streams.get(sessionId);
+        if (stream == null) {
+            return;
+        }
+        synchronized (stream) {
+            try {
+                stream.write(("event:" + event + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+                stream.flush();
+            } catch (IOException e) {
+                streams.remove(sessionId);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        responses.shutdownNow();
+        server.stop(0);
+    }
+}
@@ -0,0 +1,129 @@
+package com.nisarg.agentic.demo.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonRpcMultiplexerTest {
+
+    private static final Duration LONG = Duration.ofMinutes(1);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final JsonRpcMultiplexer.Transport recording = payload -> {
+        sent.add(payload);
+        return CompletableFuture.completedFuture(null);
+    };
+
+    @Test
+    void routesOutOfOrderResponsesById() throws Exception {
+        JsonRpcMultiplexer rpc = new JsonRpcMultiplexer(mapper, recording, message -> { }, 8, "t-");
+        List<CompletableFuture<JsonNode>> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            responses.add(rpc.request("tools/call", mapper.createObjectNode().put("n", i), LONG));
+        }
+        assertEquals(3, sent.size());
+
+        for (int i = 2; i >= 0; i--) {
+            JsonNode request = mapper.readTree(sent.get(i));
+            rpc.dispatch(answer(request.get("id").asText(), "result " + request.path("params").path("n").asInt()));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("result " + i, responses.get(i).get(1, TimeUnit.SECONDS).path("text").asText());
+        }
+        assertEquals(0, rpc.inFlight());
+    }
+
+    @Test
+    void timesOutUnansweredRequestsAndIgnoresLateAnswers() throws Exception {
+        JsonRpcMultiplexer rpc = new JsonRpcMultiplexer(mapper, recording, message -> { }, 8, "t-");
+        CompletableFuture<JsonNode> response = rpc.request("tools/list", null, Duration.ofMillis(50));
+
+        McpException error = failure(response);
+        assertEquals(0, error.getCode());
+        assertEquals("Timed out waiting for tools/list", error.getMessage());
+        assertEquals(0, rpc.inFlight());
+
+        rpc.dispatch(answer(mapper.readTree(sent.get(0)).get("id").asText(), "late"));
+        assertTrue(response.isCompletedExceptionally());
+    }
+
+    @Test
+    void queuesRequestsBeyondTheInFlightLimit() throws Exception {
+        JsonRpcMultiplexer rpc = new JsonRpcMultiplexer(mapper, recording, message -> { }, 2, "t-");
+        CompletableFuture<JsonNode> first = rpc.request("a", null, LONG);
+        CompletableFuture<JsonNode> second = rpc.request("b", null, LONG);
+        CompletableFuture<JsonNode> expires = rpc.request("c", null, Duration.ofMillis(50));
+        CompletableFuture<JsonNode> fourth = rpc.request("d", null, LONG);
+        CompletableFuture<JsonNode> fifth = rpc.request("e", null, LONG);
+        assertEquals(List.of("a", "b"), methods());
+
+        // Times out while queued: fails without ever being sent
+        assertEquals("Timed out waiting for c", failure(expires).getMessage());
+        assertEquals(2, sent.size());
+
+        rpc.dispatch(answer(mapper.readTree(sent.get(0)).get("id").asText(), "done"));
+        assertEquals("done", first.get(1, TimeUnit.SECONDS).path("text").asText());
+        assertEquals(List.of("a", "b", "d"), methods());
+
+        second.cancel(false);
+        assertEquals(List.of("a", "b", "d", "e"), methods());
+        assertFalse(fourth.isDone());
+        assertFalse(fifth.isDone());
+        assertEquals(2, rpc.inFlight());
+    }
+
+    @Test
+    void drainsALongQueueOfFailingSendsWithoutRecursing() {
+        CompletableFuture<Void> firstSend = new CompletableFuture<>();
+        JsonRpcMultiplexer.Transport failing = payload -> sent.isEmpty() && sent.add(payload)
+                ? firstSend
+                : CompletableFuture.failedFuture(new IllegalStateException("connection closed"));
+        JsonRpcMultiplexer rpc = new JsonRpcMultiplexer(mapper, failing, message -> { }, 1, "t-");
+
+        CompletableFuture<JsonNode> first = rpc.request("first", null, LONG);
+        List<CompletableFuture<JsonNode>> queued = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            queued.add(rpc.request("queued", null, LONG));
+        }
+        assertTrue(queued.stream().noneMatch(CompletableFuture::isDone));
+
+        firstSend.completeExceptionally(new IllegalStateException("connection closed"));
+
+        assertEquals("Failed to send first", failure(first).getMessage());
+        assertTrue(queued.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+        assertEquals(0, rpc.inFlight());
+    }
+
+    private String answer(String id, String text) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":\"" + id + "\",\"result\":{\"text\":\"" + text + "\"}}";
+    }
+
+    private List<String> methods() throws Exception {
+        List<String> methods = new ArrayList<>();
+        for (String payload : sent) {
+            methods.add(mapper.readTree(payload).get("method").asText());
+        }
+        return methods;
+    }
+
+    private static McpException failure(CompletableFuture<JsonNode> response) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        return assertInstanceOf(McpException.class, e.getCause());
+    }
+}
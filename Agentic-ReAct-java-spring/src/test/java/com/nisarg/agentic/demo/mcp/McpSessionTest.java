@@ -0,0 +1,54 @@
+package com.nisarg.agentic.demo.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisarg.agentic.demo.loadtest.StubMcpServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpSessionTest {
+
+    private static final Duration QUICK = Duration.ofMillis(200);
+
+    @Test
+    void failedCatalogIsEmptyUntilItsBackoffRetrySucceeds() throws Exception {
+        try (StubMcpServer server = new StubMcpServer(0, 0)) {
+            server.failToolListings(true);
+            AtomicInteger changes = new AtomicInteger();
+            McpSession session = new McpSession("flaky", server.sseUrl(), WebClient.create(), new ObjectMapper(), 16,
+                    changes::incrementAndGet);
+            session.connect();
+            await(() -> changes.get() == 1);
+
+            // Served from the cached empty catalog: no new fetch, no change reported
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Map.of(), session.toolCatalog().block(QUICK));
+            }
+            assertEquals(1, server.toolListings());
+            assertEquals(1, changes.get());
+
+            server.failToolListings(false);
+            Thread.sleep(1100);
+            // The retry runs in the background; this caller still gets the snapshot at once
+            assertEquals(Map.of(), session.toolCatalog().block(QUICK));
+            await(() -> changes.get() == 2);
+            assertEquals(2, server.toolListings());
+            assertTrue(session.toolCatalog().block(QUICK).containsKey("getWeather"));
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.nisarg.agentic.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonFieldStreamTest {
+
+    private final List<String> thought = new ArrayList<>();
+    private final List<String> answer = new ArrayList<>();
+    private final JsonFieldStream stream = new JsonFieldStream()
+            .on("thought", thought::add)
+            .on("final_answer", answer::add);
+
+    @Test
+    void streamsEachFieldAsItsChunksArrive() {
+        stream.accept("{\"thought\": \"I should ");
+        stream.accept("check the weather\", \"actions\": [], \"final_");
+        stream.accept("answer\": \"Sunny");
+        stream.accept("\"}");
+
+        assertEquals(List.of("I should ", "check the weather"), thought);
+        assertEquals(List.of("Sunny"), answer);
+    }
+
+    @Test
+    void waitsForEscapesSplitAcrossChunks() {
+        stream.accept("{\"thought\": \"line\\");
+        stream.accept("nnext \\u00");
+        stream.accept("e9t\\u");
+        stream.accept("00e9 \\\"q\\\"\"}");
+
+        assertEquals("line\nnext été \"q\"", String.join("", thought));
+        assertEquals(List.of("line", "\nnext ", "ét", "é \"q\""), thought);
+    }
+
+    @Test
+    void keepsSurrogatePairsTogether() {
+        stream.accept("{\"thought\": \"ok \\ud83d");
+        stream.accept("\\ude00\"}");
+
+        assertEquals(List.of("ok ", "😀"), thought);
+    }
+
+    @Test
+    void doesNotFailOnAMalformedUnicodeEscape() {
+        stream.accept("{\"thought\": \"a\\u12x");
+        stream.accept("b\"}");
+
+        assertEquals("a\uFFFDxb", String.join("", thought));
+    }
+
+    @Test
+    void ignoresFieldNamesQuotedInsideOtherValues() {
+        stream.accept("{\"actions\": [{\"action\": \"say\", \"action_input\": \"{\\\"thought\\\": \\\"no\\\"}\"}],");
+        stream.accept(" \"note\": \"final_answer\", \"list\": [\"thought\", \"x\"], \"thought\": \"yes\"}");
+
+        assertEquals(List.of("yes"), thought);
+        assertEquals(List.of(), answer);
+    }
+
+    @Test
+    void findsKeysSplitAtAnyChunkBoundary() {
+        String json = "{ \"thought\" : \"a\\tb\\u0041\" , \"final_answer\":\"done\" }";
+        for (int split = 1; split < json.length(); split++) {
+            List<String> thoughtParts = new ArrayList<>();
+            List<String> answerParts = new ArrayList<>();
+            JsonFieldStream fields = new JsonFieldStream()
+                    .on("thought", thoughtParts::add)
+                    .on("final_answer", answerParts::add);
+            fields.accept(json.substring(0, split));
+            fields.accept(json.substring(split));
+
+            assertEquals("a\tbA", String.join("", thoughtParts), "split at " + split);
+            assertEquals("done", String.join("", answerParts), "split at " + split);
+        }
+    }
+
+    @Test
+    void streamsOnlyTheFirstValueOfAField() {
+        stream.accept("{\"thought\": \"first\", \"nested\": {\"thought\": \"second\"}}");
+
+        assertEquals(List.of("first"), thought);
+    }
+}
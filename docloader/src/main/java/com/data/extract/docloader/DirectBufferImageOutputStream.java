@@ -0,0 +1,89 @@
+package com.data.extract.docloader;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Seekable ImageIO output stream backed by a growable direct buffer, so an
+ * encoder can write into memory that is kept and reused across pages instead
+ * of going through a temp file or a fresh byte array per page.
+ */
+class DirectBufferImageOutputStream extends ImageOutputStreamImpl {
+
+    private ByteBuffer buffer;
+    private int length;
+
+    DirectBufferImageOutputStream(int initialCapacity) {
+        this.buffer = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    /** Forgets the previous contents but keeps the allocated buffer. */
+    void clear() {
+        length = 0;
+        streamPos = 0;
+        flushedPos = 0;
+        bitOffset = 0;
+    }
+
+    /** Read-only view of the bytes written since the last {@link #clear}. */
+    ByteBuffer contents() {
+        return buffer.slice(0, length).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + 1);
+        buffer.put((int) streamPos++, (byte) b);
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + len);
+        buffer.put((int) streamPos, b, off, len);
+        streamPos += len;
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public int read() {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int n = Math.min(len, length - (int) streamPos);
+        buffer.get((int) streamPos, b, off, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Encoded image is larger than 2 GB");
+        }
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(0, buffer, 0, length);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,114 @@
+package com.data.extract.docloader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk half of {@link ResultCache}: one UTF-8 file per entry under
+ * {@code <dir>/<level>/}. Reads refresh the file's modification time, so
+ * eviction, which deletes the oldest files until the store is back under
+ * 90% of {@code maxBytes}, removes the least recently used entries first.
+ * Failures are logged and treated as misses; the cache never fails a request.
+ */
+class DiskResultStore {
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+
+    DiskResultStore(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        for (ResultCache.Level level : ResultCache.Level.values()) {
+            Files.createDirectories(dir.resolve(level.tag()));
+        }
+        size.set(entries().stream().mapToLong(Entry::bytes).sum());
+        System.out.println("Result cache on disk at " + dir + " (" + size.get() / 1024 + " KB)");
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    String get(ResultCache.Level level, String key) {
+        Path file = file(level, key);
+        try {
+            String value = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return value;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Could not read cached result " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    void put(ResultCache.Level level, String key, String value) {
+        Path file = file(level, key);
+        try {
+            // Write to a temp file first so readers never see a partial entry
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, value, StandardCharsets.UTF_8);
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (size.addAndGet(Files.size(file) - previous) > maxBytes) {
+                evict();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write cached result " + file + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        if (size.get() <= maxBytes) {
+            return;
+        }
+        List<Entry> entries = entries();
+        entries.sort(Comparator.comparing(Entry::modified));
+        long total = entries.stream().mapToLong(Entry::bytes).sum();
+        long target = maxBytes / 10 * 9;
+        for (Entry entry : entries) {
+            if (total <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(entry.path())) {
+                total -= entry.bytes();
+            }
+        }
+        size.set(total);
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (ResultCache.Level level : ResultCache.Level.values()) {
+            try (Stream<Path> files = Files.list(dir.resolve(level.tag()))) {
+                files.filter(path -> path.toString().endsWith(".txt")).forEach(path -> {
+                    try {
+                        entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                    } catch (IOException e) {
+                        // Evicted or replaced concurrently
+                    }
+                });
+            }
+        }
+        return entries;
+    }
+
+    private Path file(ResultCache.Level level, String key) {
+        return dir.resolve(level.tag()).resolve(key + ".txt");
+    }
+
+    private record Entry(Path path, long bytes, FileTime modified) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.data.extract.docloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Upload formats the extractor accepts. PDFs go through the text-layer check
+ * and PDFBox; the image formats are decoded frame by frame with ImageIO.
+ */
+public enum DocumentFormat {
+    PDF("pdf"),
+    TIFF("tif", "tiff"),
+    PNG("png"),
+    JPEG("jpg", "jpeg");
+
+    private final String[] extensions;
+
+    DocumentFormat(String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /** Format by file name extension, or {@code null} if it is not one we accept. */
+    public static DocumentFormat fromFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (DocumentFormat format : values()) {
+            if (Arrays.stream(format.extensions).anyMatch(extension -> name.endsWith("." + extension))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /** Format by the file's magic bytes, or {@code null} if it is none of ours. */
+    public static DocumentFormat detect(Path file) throws IOException {
+        byte[] head = new byte[8];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read >= 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F') {
+            return PDF;
+        }
+        if (read >= 4 && ((head[0] == 'I' && head[1] == 'I' && head[2] == 42 && head[3] == 0)
+                || (head[0] == 'M' && head[1] == 'M' && head[2] == 0 && head[3] == 42))) {
+            return TIFF;
+        }
+        if (read >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return PNG;
+        }
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return JPEG;
+        }
+        return null;
+    }
+}
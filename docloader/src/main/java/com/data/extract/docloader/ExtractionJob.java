@@ -0,0 +1,100 @@
+package com.data.extract.docloader;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous extraction job, as persisted in {@code job.json}
+ * by {@link JobStore} and returned by the job status endpoint.
+ */
+public class ExtractionJob {
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private String id;
+    private String fileName;
+    private State state;
+    private int totalPages;
+    private int pagesDone;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public ExtractionJob() {
+    }
+
+    ExtractionJob(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+        this.state = State.QUEUED;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /** Page count of the document; 0 until the job has started for the first time. */
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    /** Pages with a stored result; filled in from the page files when the job is read. */
+    public int getPagesDone() {
+        return pagesDone;
+    }
+
+    public void setPagesDone(int pagesDone) {
+        this.pagesDone = pagesDone;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,152 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs extraction jobs in the background.
+ *
+ * Submitting a job only spools the upload and returns, so many uploads can be
+ * accepted at once without holding a servlet thread each. Up to
+ * {@code docloader.jobs.max-running} jobs drive their pipelines at a time;
+ * their pages are OCR'd by the shared {@link OcrScheduler} like any other
+ * request. When the scheduler is saturated a job waits for the suggested
+ * Retry-After instead of failing.
+ *
+ * Each page result is stored as soon as it is ready. On startup, jobs that
+ * were queued or running are resumed and only the pages without a stored
+ * result are processed again.
+ */
+@Component
+public class ExtractionJobRunner {
+
+    private final JobStore store;
+    private final PdfImageTextExtractor extractor;
+    private final ThreadPoolExecutor runner;
+    private final boolean resume;
+
+    public ExtractionJobRunner(JobStore store, PdfImageTextExtractor extractor,
+            @Value("${docloader.jobs.max-running:2}") int maxRunning,
+            @Value("${docloader.jobs.resume-on-startup:true}") boolean resume,
+            MeterRegistry registry) {
+        this.store = store;
+        this.extractor = extractor;
+        this.resume = resume;
+        AtomicInteger counter = new AtomicInteger();
+        this.runner = (ThreadPoolExecutor) Executors.newFixedThreadPool(Math.max(1, maxRunning), runnable -> {
+            Thread thread = new Thread(runnable, "docloader-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("docloader.jobs.queued", runner, r -> r.getQueue().size())
+                .description("Extraction jobs waiting to start").register(registry);
+        Gauge.builder("docloader.jobs.running", runner, ThreadPoolExecutor::getActiveCount)
+                .description("Extraction jobs currently running").register(registry);
+    }
+
+    @PostConstruct
+    public void resumeUnfinished() {
+        if (!resume) {
+            return;
+        }
+        try {
+            for (ExtractionJob job : store.unfinished()) {
+                System.out.println("Resuming extraction job " + job.getId() + " (" + job.getPagesDone() + " of "
+                        + job.getTotalPages() + " pages already done)");
+                schedule(job.getId());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not resume extraction jobs: " + e.getMessage());
+        }
+    }
+
+    public ExtractionJob submit(String fileName, InputStream upload) throws IOException {
+        ExtractionJob job = store.create(fileName, upload);
+        schedule(job.getId());
+        return job;
+    }
+
+    private void schedule(String id) {
+        runner.execute(() -> {
+            try {
+                run(id);
+            } catch (InterruptedException e) {
+                // Shutting down; the job stays unfinished and resumes on the next start
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (runner.isShutdown()) {
+                    // Interrupted by shutdown rather than a real failure; resume on the next start
+                    return;
+                }
+                e.printStackTrace();
+                fail(id, e);
+            }
+        });
+    }
+
+    private void run(String id) throws IOException, InterruptedException {
+        while (true) {
+            ExtractionJob job = store.find(id).orElse(null);
+            if (job == null || job.getState() == ExtractionJob.State.DONE
+                    || job.getState() == ExtractionJob.State.FAILED) {
+                return;
+            }
+            BitSet done = store.donePages(id);
+            try (PdfImageTextExtractor.Extraction extraction =
+                    extractor.prepare(store.uploadFile(id).toFile(), done)) {
+                job.setState(ExtractionJob.State.RUNNING);
+                job.setTotalPages(extraction.getPageCount());
+                store.save(job);
+                extraction.run(false, result -> store.savePage(id, result));
+                System.out.println("Extraction job " + id + " summary: " + extraction.getStats().summary());
+            } catch (OcrQueueFullException e) {
+                System.out.println("OCR queue full, job " + id + " retries in " + e.getRetryAfterSeconds() + " s");
+                TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+                continue;
+            }
+            job.setState(ExtractionJob.State.DONE);
+            job.setError(null);
+            store.save(job);
+            // Results are kept; the upload is no longer needed
+            Files.deleteIfExists(store.uploadFile(id));
+            System.out.println("Extraction job " + id + " done (" + job.getTotalPages() + " pages)");
+            return;
+        }
+    }
+
+    private void fail(String id, Exception cause) {
+        try {
+            store.find(id).ifPresent(job -> {
+                job.setState(ExtractionJob.State.FAILED);
+                job.setError(String.valueOf(cause.getMessage()));
+                try {
+                    store.save(job);
+                } catch (IOException e) {
+                    System.err.println("Could not record failure of job " + id + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not record failure of job " + id + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
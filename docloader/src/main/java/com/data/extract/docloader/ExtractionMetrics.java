@@ -0,0 +1,80 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the extraction stages: one
+ * {@code docloader.stage} timer per {@link ExtractionStats.Stage} (with
+ * p50/p99), {@code docloader.pages} by page type and
+ * {@code docloader.document.bytes}. Every measurement is also added to the
+ * request's {@link ExtractionStats}.
+ */
+@Component
+public class ExtractionMetrics {
+
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call() throws IOException;
+    }
+
+    private final MeterRegistry registry;
+    private final Map<ExtractionStats.Stage, Timer> stageTimers = new EnumMap<>(ExtractionStats.Stage.class);
+    private final Map<String, Counter> pages = new ConcurrentHashMap<>();
+    private final DistributionSummary documentBytes;
+    private final DistributionSummary visionBytes;
+
+    public ExtractionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (ExtractionStats.Stage stage : ExtractionStats.Stage.values()) {
+            stageTimers.put(stage, Timer.builder("docloader.stage")
+                    .tag("stage", stage.tag())
+                    .description("Time spent in one extraction stage, per page (per document for load and text-layer)")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry));
+        }
+        this.documentBytes = DistributionSummary.builder("docloader.document.bytes").baseUnit("bytes")
+                .description("Size of uploaded documents").register(registry);
+        this.visionBytes = DistributionSummary.builder("docloader.vision.bytes").baseUnit("bytes")
+                .description("Encoded image bytes sent to vision OCR per page or region").register(registry);
+    }
+
+    public <T> T time(ExtractionStats.Stage stage, ExtractionStats stats, StageCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(stage, stats, System.nanoTime() - start);
+        }
+    }
+
+    public void record(ExtractionStats.Stage stage, ExtractionStats stats, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        stats.record(stage, nanos);
+    }
+
+    public void page(String type, ExtractionStats stats) {
+        pages.computeIfAbsent(type, t -> Counter.builder("docloader.pages").tag("type", t)
+                .description("Pages extracted, by page type").register(registry)).increment();
+        stats.page(type);
+    }
+
+    public void document(long bytes, ExtractionStats stats) {
+        documentBytes.record(bytes);
+        stats.document(bytes);
+    }
+
+    public void visionBytes(long bytes, ExtractionStats stats) {
+        visionBytes.record(bytes);
+        stats.visionBytes(bytes);
+    }
+}
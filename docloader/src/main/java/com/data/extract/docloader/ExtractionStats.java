@@ -0,0 +1,122 @@
+package com.data.extract.docloader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request counterpart of the {@link ExtractionMetrics} meters: pages by
+ * type, bytes, and the time spent in each stage for one extraction. Stage
+ * times are summed over pages, so with several OCR workers they can add up
+ * to more than the elapsed time. Safe to update from the pipeline threads.
+ */
+public class ExtractionStats {
+
+    public enum Stage {
+        LOAD("load"),
+        TEXT_LAYER("text-layer"),
+        RENDER("render"),
+        PREVIEW("preview"),
+        CLASSIFY("classify"),
+        LAYOUT("layout"),
+        ENCODE("encode"),
+        TESSERACT("tesseract"),
+        VISION("vision");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    private final LongAdder[] stageCalls = new LongAdder[Stage.values().length];
+    private final ConcurrentMap<String, LongAdder> pagesByType = new ConcurrentHashMap<>();
+    private final LongAdder cachedPages = new LongAdder();
+    private final LongAdder visionBytes = new LongAdder();
+    private final AtomicLong documentBytes = new AtomicLong();
+    private volatile boolean documentCached;
+
+    public ExtractionStats() {
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = new LongAdder();
+            stageCalls[i] = new LongAdder();
+        }
+    }
+
+    void record(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()].add(nanos);
+        stageCalls[stage.ordinal()].increment();
+    }
+
+    void page(String type) {
+        pagesByType.computeIfAbsent(type, t -> new LongAdder()).increment();
+    }
+
+    void cachedPage() {
+        cachedPages.increment();
+    }
+
+    void visionBytes(long bytes) {
+        visionBytes.add(bytes);
+    }
+
+    void document(long bytes) {
+        documentBytes.set(bytes);
+    }
+
+    void documentCached() {
+        documentCached = true;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+
+    public long getPages() {
+        return pagesByType.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * The summary returned with a response: pages by type, bytes, elapsed
+     * time, and milliseconds and calls per stage for the stages that ran.
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("pages", getPages());
+        Map<String, Long> types = new LinkedHashMap<>();
+        pagesByType.forEach((type, count) -> types.put(type, count.sum()));
+        summary.put("pagesByType", types);
+        summary.put("cachedPages", cachedPages.sum());
+        summary.put("documentCached", documentCached);
+        summary.put("bytes", documentBytes.get());
+        summary.put("visionBytes", visionBytes.sum());
+        summary.put("elapsedMs", millis(System.nanoTime() - startNanos));
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            long calls = stageCalls[stage.ordinal()].sum();
+            if (calls > 0) {
+                Map<String, Object> times = new LinkedHashMap<>();
+                times.put("ms", millis(getStageNanos(stage)));
+                times.put("calls", calls);
+                stages.put(stage.tag(), times);
+            }
+        }
+        summary.put("stages", stages);
+        return summary;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,403 @@
+package com.data.extract.docloader;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.vertexai.Transport;
+import com.google.cloud.vertexai.VertexAI;
+import com.google.cloud.vertexai.api.Content;
+import com.google.cloud.vertexai.api.GenerateContentResponse;
+import com.google.cloud.vertexai.api.PredictionServiceClient;
+import com.google.cloud.vertexai.api.PredictionServiceSettings;
+import com.google.cloud.vertexai.generativeai.ContentMaker;
+import com.google.cloud.vertexai.generativeai.GenerativeModel;
+import com.google.cloud.vertexai.generativeai.PartMaker;
+import com.google.cloud.vertexai.generativeai.ResponseHandler;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini vision OCR for handwritten pages, shared by all requests.
+ *
+ * One {@link VertexAI} client and model are created on first use and reused,
+ * so connections stay open between pages. Pages of the same extraction that
+ * arrive close together (within {@code docloader.gemini.batch-wait-ms}) are
+ * packed into a single multimodal request of up to {@code pages-per-request}
+ * images, and the reply is split back into pages on {@code === PAGE n ===}
+ * markers; if the model does not keep to the markers, the pages of that
+ * request are sent again one by one. Pages of different extractions never
+ * share a request, so a mis-split reply cannot leak one upload's text into
+ * another's result. Every request takes a token from a token bucket
+ * ({@code requests-per-second}, {@code burst}) and is retried on throttling
+ * and transient errors with exponential backoff and full jitter.
+ *
+ * A caller waits at most the page's worst case: every attempt of the packed
+ * request and of the page-by-page fallback taking {@code attempt-timeout-ms},
+ * plus the backoffs in between. After that the page is abandoned and the
+ * caller's OCR worker is free again.
+ *
+ * Setting {@code docloader.gemini.endpoint} to an {@code http://} URL sends
+ * requests over REST without credentials, e.g. to a local stub server.
+ */
+@Component
+public class GeminiVisionClient {
+
+    static final String SINGLE_PAGE_PROMPT = "Transcribe the handwritten text in this image exactly as it appears. "
+            + "Do not add any markdown formatting or commentary.";
+
+    private static final Pattern PAGE_MARKER = Pattern.compile("^=== PAGE (\\d+) ===[ \\t]*$", Pattern.MULTILINE);
+
+    private static final Set<StatusCode.Code> RETRYABLE = Set.of(StatusCode.Code.RESOURCE_EXHAUSTED,
+            StatusCode.Code.UNAVAILABLE, StatusCode.Code.DEADLINE_EXCEEDED, StatusCode.Code.INTERNAL,
+            StatusCode.Code.ABORTED);
+
+    private final String projectId;
+    private final String location;
+    private final String modelName;
+    private final String endpoint;
+    private final int pagesPerRequest;
+    private final long batchWaitNanos;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long pageTimeoutNanos;
+    private final TokenBucket rateLimiter;
+
+    private final LinkedBlockingQueue<PendingPage> pending = new LinkedBlockingQueue<>();
+    private final ExecutorService dispatcher;
+    private final ExecutorService callers;
+
+    private final Counter requests;
+    private final Counter retries;
+    private final Counter callsSaved;
+    private final Counter unpackedFallbacks;
+    private final Timer pageLatency;
+
+    private VertexAI vertexAI;
+    private GenerativeModel model;
+
+    public GeminiVisionClient(
+            @Value("${docloader.gemini.project:${GOOGLE_CLOUD_PROJECT:your-project-id}}") String projectId,
+            @Value("${docloader.gemini.location:us-central1}") String location,
+            @Value("${docloader.gemini.model:gemini-2.5-flash-lite}") String modelName,
+            @Value("${docloader.gemini.endpoint:}") String endpoint,
+            @Value("${docloader.gemini.requests-per-second:2}") double requestsPerSecond,
+            @Value("${docloader.gemini.burst:4}") int burst,
+            @Value("${docloader.gemini.pages-per-request:4}") int pagesPerRequest,
+            @Value("${docloader.gemini.batch-wait-ms:250}") long batchWaitMillis,
+            @Value("${docloader.gemini.max-concurrent-requests:4}") int maxConcurrentRequests,
+            @Value("${docloader.gemini.max-attempts:4}") int maxAttempts,
+            @Value("${docloader.gemini.initial-backoff-ms:500}") long initialBackoffMillis,
+            @Value("${docloader.gemini.max-backoff-ms:8000}") long maxBackoffMillis,
+            @Value("${docloader.gemini.attempt-timeout-ms:60000}") long attemptTimeoutMillis,
+            MeterRegistry registry) {
+        this.projectId = projectId;
+        this.location = location;
+        this.modelName = modelName;
+        this.endpoint = endpoint;
+        this.pagesPerRequest = Math.max(1, pagesPerRequest);
+        this.batchWaitNanos = TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.pageTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                pageTimeoutMillis(this.pagesPerRequest, batchWaitMillis, this.maxAttempts, attemptTimeoutMillis,
+                        initialBackoffMillis, maxBackoffMillis));
+        this.rateLimiter = new TokenBucket(requestsPerSecond, burst);
+
+        this.dispatcher = Executors.newSingleThreadExecutor(named("docloader-gemini-batcher-"));
+        this.callers = Executors.newFixedThreadPool(Math.max(1, maxConcurrentRequests), named("docloader-gemini-"));
+
+        this.requests = Counter.builder("docloader.gemini.requests")
+                .description("generateContent calls made, including retries").register(registry);
+        this.retries = Counter.builder("docloader.gemini.retries")
+                .description("generateContent calls retried after a throttling or transient error").register(registry);
+        this.callsSaved = Counter.builder("docloader.gemini.calls.saved")
+                .description("Calls avoided by packing several pages into one request").register(registry);
+        this.unpackedFallbacks = Counter.builder("docloader.gemini.packed.fallbacks")
+                .description("Packed replies that could not be split and were retried page by page")
+                .register(registry);
+        this.pageLatency = Timer.builder("docloader.gemini.page.latency")
+                .description("Time from handing a page to the vision client until its text is back")
+                .publishPercentileHistogram().register(registry);
+
+        // Last, so the loop never sees a field this constructor has not assigned yet
+        dispatcher.execute(this::dispatchLoop);
+    }
+
+    /**
+     * Upper bound on one page's wait: the packed request and then each page
+     * of the fallback, every one spending all attempts and backoffs.
+     */
+    static long pageTimeoutMillis(int pagesPerRequest, long batchWaitMillis, int maxAttempts,
+            long attemptTimeoutMillis, long initialBackoffMillis, long maxBackoffMillis) {
+        long perCall = maxAttempts * attemptTimeoutMillis;
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            perCall += Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        }
+        int calls = pagesPerRequest > 1 ? 1 + pagesPerRequest : 1;
+        return batchWaitMillis + calls * perCall;
+    }
+
+    /**
+     * Transcribes one PNG page; blocks until its (possibly shared) request has
+     * completed, or fails once the page's retry budget is spent.
+     *
+     * @param request identifies the extraction the page belongs to; only pages
+     *                of the same request object are packed into one call
+     */
+    public String transcribe(Object request, int pageIndex, ByteString png) throws IOException {
+        PendingPage page = new PendingPage(request, pageIndex, png);
+        pending.add(page);
+        try {
+            String text = page.result.get(pageTimeoutNanos, TimeUnit.NANOSECONDS);
+            pageLatency.record(System.nanoTime() - page.enqueued, TimeUnit.NANOSECONDS);
+            return text;
+        } catch (InterruptedException e) {
+            page.result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for Gemini", e);
+        } catch (TimeoutException e) {
+            page.result.cancel(false);
+            throw new IOException("Gemini did not transcribe page " + (pageIndex + 1) + " within "
+                    + TimeUnit.NANOSECONDS.toMillis(pageTimeoutNanos) + " ms", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Gemini API call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Groups each request's pages that arrive within the batch window and
+     * hands each group to a caller thread. Every open group has the same
+     * window, so the oldest one always closes first.
+     */
+    private void dispatchLoop() {
+        Map<Object, OpenBatch> open = new LinkedHashMap<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PendingPage next = open.isEmpty()
+                        ? pending.take()
+                        : pending.poll(open.values().iterator().next().deadline - System.nanoTime(),
+                                TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    OpenBatch batch = open.computeIfAbsent(next.request,
+                            request -> new OpenBatch(System.nanoTime() + batchWaitNanos));
+                    batch.pages.add(next);
+                    if (batch.pages.size() >= pagesPerRequest) {
+                        open.remove(next.request);
+                        dispatch(batch.pages);
+                    }
+                }
+                long now = System.nanoTime();
+                for (Iterator<OpenBatch> it = open.values().iterator(); it.hasNext(); ) {
+                    OpenBatch batch = it.next();
+                    if (batch.deadline - now > 0) {
+                        break;
+                    }
+                    it.remove();
+                    dispatch(batch.pages);
+                }
+            } catch (InterruptedException e) {
+                open.values().forEach(batch -> batch.pages.forEach(page -> page.result.completeExceptionally(e)));
+                return;
+            }
+        }
+    }
+
+    private void dispatch(List<PendingPage> batch) {
+        batch.removeIf(page -> page.result.isCancelled());
+        if (!batch.isEmpty()) {
+            callers.execute(() -> process(batch));
+        }
+    }
+
+    private void process(List<PendingPage> batch) {
+        try {
+            if (batch.size() == 1) {
+                PendingPage page = batch.get(0);
+                page.result.complete(call(ContentMaker.fromMultiModalData(SINGLE_PAGE_PROMPT,
+                        PartMaker.fromMimeTypeAndData("image/png", page.png))));
+                return;
+            }
+            List<String> texts = split(call(packed(batch)), batch.size());
+            if (texts != null) {
+                callsSaved.increment(batch.size() - 1);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result.complete(texts.get(i));
+                }
+                return;
+            }
+            unpackedFallbacks.increment();
+            System.err.println("Packed Gemini reply for " + batch.size() + " pages could not be split, "
+                    + "retrying page by page");
+            for (PendingPage page : batch) {
+                process(List.of(page));
+            }
+        } catch (Throwable t) {
+            batch.forEach(page -> page.result.completeExceptionally(t));
+        }
+    }
+
+    private static Content packed(List<PendingPage> batch) {
+        List<Object> parts = new ArrayList<>();
+        parts.add("Transcribe the handwritten text in each of the following " + batch.size()
+                + " images exactly as it appears. Do not add any markdown formatting or commentary. "
+                + "Before the transcription of image n, write a line containing only === PAGE n ===, "
+                + "for n from 1 to " + batch.size() + ", even if an image contains no text.");
+        for (int i = 0; i < batch.size(); i++) {
+            parts.add("Image " + (i + 1) + ":");
+            parts.add(PartMaker.fromMimeTypeAndData("image/png", batch.get(i).png));
+        }
+        return ContentMaker.fromMultiModalData(parts.toArray());
+    }
+
+    /** Splits a packed reply on its page markers, or returns {@code null} if any page is missing. */
+    static List<String> split(String reply, int pages) {
+        String[] texts = new String[pages];
+        Matcher marker = PAGE_MARKER.matcher(reply);
+        int page = -1;
+        int textStart = 0;
+        while (marker.find()) {
+            if (page >= 0) {
+                texts[page] = reply.substring(textStart, marker.start()).strip();
+            }
+            int n = Integer.parseInt(marker.group(1));
+            if (n < 1 || n > pages || texts[n - 1] != null) {
+                return null;
+            }
+            page = n - 1;
+            textStart = marker.end();
+        }
+        if (page < 0) {
+            return null;
+        }
+        texts[page] = reply.substring(textStart).strip();
+        for (String text : texts) {
+            if (text == null) {
+                return null;
+            }
+        }
+        return List.of(texts);
+    }
+
+    private String call(Content content) throws Exception {
+        GenerativeModel model = model();
+        for (int attempt = 1;; attempt++) {
+            rateLimiter.acquire();
+            requests.increment();
+            try {
+                GenerateContentResponse response = model.generateContent(content);
+                return ResponseHandler.getText(response);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                // Full jitter: anywhere between 0 and the exponential cap
+                long cap = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+                long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+                System.err.println("Gemini call failed (" + e.getMessage() + "), attempt " + attempt + " of "
+                        + maxAttempts + ", retrying in " + sleep + " ms");
+                Thread.sleep(sleep);
+            }
+        }
+    }
+
+    private static boolean isRetryable(Throwable t) {
+        for (; t != null; t = t.getCause()) {
+            if (t instanceof ApiException api) {
+                return api.isRetryable() || RETRYABLE.contains(api.getStatusCode().getCode());
+            }
+        }
+        return false;
+    }
+
+    private synchronized GenerativeModel model() throws IOException {
+        if (model == null) {
+            VertexAI.Builder builder = new VertexAI.Builder().setProjectId(projectId).setLocation(location);
+            if (endpoint.startsWith("http://")) {
+                PredictionServiceClient client = PredictionServiceClient.create(
+                        PredictionServiceSettings.newHttpJsonBuilder()
+                                .setEndpoint(endpoint)
+                                .setCredentialsProvider(NoCredentialsProvider.create())
+                                .build());
+                builder.setTransport(Transport.REST)
+                        .setCredentials(GoogleCredentials.create(new AccessToken("unused", null)))
+                        .setPredictionClientSupplier(() -> client);
+            } else if (!endpoint.isBlank()) {
+                builder.setApiEndpoint(endpoint);
+            }
+            vertexAI = builder.build();
+            model = new GenerativeModel(modelName, vertexAI);
+        }
+        return model;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        dispatcher.shutdownNow();
+        callers.shutdownNow();
+        if (vertexAI != null) {
+            vertexAI.close();
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class PendingPage {
+        final Object request;
+        final int pageIndex;
+        final ByteString png;
+        final long enqueued = System.nanoTime();
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        PendingPage(Object request, int pageIndex, ByteString png) {
+            this.request = request;
+            this.pageIndex = pageIndex;
+            this.png = png;
+        }
+    }
+
+    private static class OpenBatch {
+        final long deadline;
+        final List<PendingPage> pages = new ArrayList<>();
+
+        OpenBatch(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
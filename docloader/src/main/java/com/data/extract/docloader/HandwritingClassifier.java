@@ -0,0 +1,210 @@
+package com.data.extract.docloader;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import io.micrometer.core.instrument.Timer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Printed/handwritten page classifier backed by the ONNX model.
+ *
+ * Pages are classified in batches of up to {@code batchSize} in a single
+ * {@code [N, 3, H, W]} run. A batch checks out one of a small, fixed set of
+ * reused direct {@link FloatBuffer}s (one per concurrent run, created on
+ * first need), fills it straight from the raster's backing int array, and
+ * ONNX Runtime reads that buffer without copying, so a batch allocates almost
+ * nothing on the Java heap. At the default input size a buffer for four
+ * pages is about 29 MB of native memory, so the set is capped rather than
+ * tied to the threads that happen to classify.
+ */
+public class HandwritingClassifier implements PagePipeline.PageClassifier {
+
+    public static final String PRINTED = "Printed";
+    public static final String HANDWRITTEN = "Handwritten";
+
+    // Model input is [N, 3, 1000, 600] (height 1000, width 600) when the
+    // model does not declare fixed spatial dimensions itself
+    static final int DEFAULT_HEIGHT = 1000;
+    static final int DEFAULT_WIDTH = 600;
+    static final int DEFAULT_CONCURRENT_RUNS = 2;
+
+    private static final float[] UNIT_SCALE = new float[256];
+
+    static {
+        for (int i = 0; i < UNIT_SCALE.length; i++) {
+            UNIT_SCALE[i] = i / 255.0f;
+        }
+    }
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final String inputName;
+    private final int batchSize;
+    private final int height;
+    private final int width;
+    private final int capacity;
+    private final int maxConcurrentRuns;
+    private final ArrayBlockingQueue<FloatBuffer> tensorBuffers;
+    private final AtomicInteger buffersCreated = new AtomicInteger();
+    private final Timer inferenceTimer;
+
+    public HandwritingClassifier(OrtEnvironment env, OrtSession session, int batchSize) throws OrtException {
+        this(env, session, batchSize, DEFAULT_CONCURRENT_RUNS, null);
+    }
+
+    /**
+     * @param maxConcurrentRuns batches classified at once, each with its own tensor buffer;
+     *        further callers wait for a buffer
+     * @param inferenceTimer records the latency of each model run; may be {@code null}
+     */
+    public HandwritingClassifier(OrtEnvironment env, OrtSession session, int batchSize, int maxConcurrentRuns,
+            Timer inferenceTimer) throws OrtException {
+        this.env = env;
+        this.inferenceTimer = inferenceTimer;
+        this.session = session;
+        this.inputName = session.getInputNames().iterator().next();
+
+        long[] shape = inputShape(session.getInputInfo().get(inputName));
+        // A model exported with a fixed batch dimension can only take that many pages per run
+        this.batchSize = shape[0] > 0 ? (int) Math.min(shape[0], Math.max(1, batchSize)) : Math.max(1, batchSize);
+        this.height = shape[2] > 0 ? (int) shape[2] : DEFAULT_HEIGHT;
+        this.width = shape[3] > 0 ? (int) shape[3] : DEFAULT_WIDTH;
+
+        this.capacity = this.batchSize * 3 * height * width;
+        this.maxConcurrentRuns = Math.max(1, maxConcurrentRuns);
+        this.tensorBuffers = new ArrayBlockingQueue<>(this.maxConcurrentRuns);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Width of the model input; pages already rendered at this size skip resizing. */
+    public int getInputWidth() {
+        return width;
+    }
+
+    public int getInputHeight() {
+        return height;
+    }
+
+    @Override
+    public String classify(BufferedImage image) {
+        return classifyBatch(Collections.singletonList(image)).get(0);
+    }
+
+    @Override
+    public List<String> classifyBatch(List<BufferedImage> images) {
+        List<String> types = new ArrayList<>(images.size());
+        for (int from = 0; from < images.size(); from += batchSize) {
+            List<BufferedImage> chunk = images.subList(from, Math.min(images.size(), from + batchSize));
+            try {
+                types.addAll(runBatch(chunk));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                types.addAll(Collections.nCopies(images.size() - from, PRINTED));
+                break;
+            } catch (Exception e) {
+                System.err.println("Classification failed, defaulting to Printed: " + e.getMessage());
+                e.printStackTrace();
+                types.addAll(Collections.nCopies(chunk.size(), PRINTED));
+            }
+        }
+        return types;
+    }
+
+    private List<String> runBatch(List<BufferedImage> images) throws OrtException, InterruptedException {
+        FloatBuffer buffer = checkOutBuffer();
+        try {
+            return runBatch(images, buffer);
+        } finally {
+            tensorBuffers.add(buffer);
+        }
+    }
+
+    /** A free tensor buffer, creating one while fewer than maxConcurrentRuns exist, else waiting for one. */
+    private FloatBuffer checkOutBuffer() throws InterruptedException {
+        FloatBuffer buffer = tensorBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (buffersCreated.getAndUpdate(n -> Math.min(n + 1, maxConcurrentRuns)) < maxConcurrentRuns) {
+            return ByteBuffer.allocateDirect(capacity * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+        return tensorBuffers.take();
+    }
+
+    private List<String> runBatch(List<BufferedImage> images, FloatBuffer buffer) throws OrtException {
+        int planeSize = height * width;
+        buffer.clear();
+        for (int i = 0; i < images.size(); i++) {
+            fillPlanes(buffer, i * 3 * planeSize, planeSize, toModelSize(images.get(i)));
+        }
+        buffer.position(0).limit(images.size() * 3 * planeSize);
+
+        long[] shape = { images.size(), 3, height, width };
+        long start = System.nanoTime();
+        try (OnnxTensor input = OnnxTensor.createTensor(env, buffer, shape);
+                OrtSession.Result result = session.run(Collections.singletonMap(inputName, input))) {
+            if (inferenceTimer != null) {
+                inferenceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            // Output is [N, 2]: index 0 printed, index 1 handwritten
+            float[][] output = (float[][]) result.get(0).getValue();
+            List<String> types = new ArrayList<>(images.size());
+            for (float[] scores : output) {
+                types.add(scores[1] > scores[0] ? HANDWRITTEN : PRINTED);
+            }
+            return types;
+        }
+    }
+
+    /**
+     * Writes one page as normalised R, G and B planes (NCHW) using absolute
+     * puts, reading pixels in bulk from the raster instead of per-pixel getRGB.
+     */
+    private static void fillPlanes(FloatBuffer buffer, int offset, int planeSize, BufferedImage image) {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int green = offset + planeSize;
+        int blue = green + planeSize;
+        for (int p = 0; p < planeSize; p++) {
+            int rgb = pixels[p];
+            buffer.put(offset + p, UNIT_SCALE[(rgb >> 16) & 0xFF]);
+            buffer.put(green + p, UNIT_SCALE[(rgb >> 8) & 0xFF]);
+            buffer.put(blue + p, UNIT_SCALE[rgb & 0xFF]);
+        }
+    }
+
+    /** Returns a TYPE_INT_RGB image of exactly the model input size. */
+    private BufferedImage toModelSize(BufferedImage image) {
+        if (image.getWidth() == width && image.getHeight() == height
+                && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        return ImageResampler.resize(image, width, height);
+    }
+
+    private static long[] inputShape(NodeInfo input) {
+        if (input.getInfo() instanceof TensorInfo info && info.getShape().length == 4) {
+            return info.getShape();
+        }
+        return new long[] { -1, 3, -1, -1 };
+    }
+}
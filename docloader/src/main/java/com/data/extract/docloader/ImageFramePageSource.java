@@ -0,0 +1,76 @@
+package com.data.extract.docloader;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Frames of a multi-page TIFF, or the single frame of a PNG or JPEG, read
+ * straight from the spooled file. Each frame is decoded only when the
+ * pipeline asks for it, so a long TIFF is never held in memory as a whole
+ * and never goes through a PDF. Frames much larger than
+ * {@code targetPixels}, such as 600 DPI scans, are subsampled while decoding,
+ * in line with the render budget for PDF pages.
+ */
+class ImageFramePageSource implements PageSource {
+
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int frames;
+    private final long targetPixels;
+
+    ImageFramePageSource(File file, long targetPixels) throws IOException {
+        this.targetPixels = targetPixels;
+        this.input = new FileImageInputStream(file);
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + file.getName());
+            }
+            this.reader = readers.next();
+            // Random access to frames; metadata is not needed
+            reader.setInput(input, false, true);
+            this.frames = reader.getNumImages(true);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getPageCount() {
+        return frames;
+    }
+
+    @Override
+    public BufferedImage renderForOcr(int pageIndex) throws IOException {
+        long pixels = (long) reader.getWidth(pageIndex) * reader.getHeight(pageIndex);
+        int subsampling = (int) Math.round(Math.sqrt((double) pixels / targetPixels));
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (subsampling > 1) {
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        return reader.read(pageIndex, param);
+    }
+
+    /** Frames are decoded once; the classifier downscales the OCR raster. */
+    @Override
+    public PagePipeline.PageRenderer classificationRenderer(int width, int height) {
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.dispose();
+        } finally {
+            input.close();
+        }
+    }
+}
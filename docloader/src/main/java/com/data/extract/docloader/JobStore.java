@@ -0,0 +1,166 @@
+package com.data.extract.docloader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * File-based store for extraction jobs under {@code docloader.jobs.dir}:
+ *
+ * <pre>
+ * &lt;id&gt;/upload              the spooled upload (PDF or image), deleted once the job is done
+ * &lt;id&gt;/job.json            {@link ExtractionJob}
+ * &lt;id&gt;/pages/&lt;n&gt;.json       result of page n (0-based), written as soon as it is ready
+ * </pre>
+ *
+ * Every file is written to a temp file and moved into place, so a crash never
+ * leaves a half-written page behind and a restarted job can trust every page
+ * file it finds.
+ */
+@Component
+public class JobStore {
+
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-f-]{36}");
+    private static final String JOB_FILE = "job.json";
+    private static final String UPLOAD_FILE = "upload";
+    /** Upload name used before image uploads were accepted; jobs queued then still resume. */
+    private static final String LEGACY_UPLOAD_FILE = "upload.pdf";
+    private static final String PAGES_DIR = "pages";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+
+    public JobStore(@Value("${docloader.jobs.dir:${java.io.tmpdir}/docloader-jobs}") String dir,
+            ObjectMapper objectMapper) throws IOException {
+        this.dir = Path.of(dir);
+        this.objectMapper = objectMapper;
+        Files.createDirectories(this.dir);
+    }
+
+    /** Stores the upload and a QUEUED job for it. */
+    public ExtractionJob create(String fileName, InputStream upload) throws IOException {
+        ExtractionJob job = new ExtractionJob(UUID.randomUUID().toString(), fileName);
+        Path jobDir = dir.resolve(job.getId());
+        Files.createDirectories(jobDir.resolve(PAGES_DIR));
+        try {
+            Files.copy(upload, jobDir.resolve(UPLOAD_FILE));
+            save(job);
+        } catch (IOException | RuntimeException e) {
+            delete(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ExtractionJob> find(String id) throws IOException {
+        if (!JOB_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        Path jobFile = dir.resolve(id).resolve(JOB_FILE);
+        if (!Files.exists(jobFile)) {
+            return Optional.empty();
+        }
+        ExtractionJob job = objectMapper.readValue(jobFile.toFile(), ExtractionJob.class);
+        job.setPagesDone(donePages(id).cardinality());
+        return Optional.of(job);
+    }
+
+    public void save(ExtractionJob job) throws IOException {
+        job.setUpdatedAt(Instant.now());
+        write(dir.resolve(job.getId()).resolve(JOB_FILE), objectMapper.writeValueAsBytes(job));
+    }
+
+    /** The spooled upload; its format is detected from its content, not its name. */
+    public Path uploadFile(String id) {
+        Path jobDir = dir.resolve(id);
+        Path legacy = jobDir.resolve(LEGACY_UPLOAD_FILE);
+        return Files.exists(legacy) ? legacy : jobDir.resolve(UPLOAD_FILE);
+    }
+
+    public void savePage(String id, PageResult result) throws IOException {
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("page", result.getPageIndex() + 1);
+        page.put("type", result.getType());
+        page.put("text", result.getText());
+        write(pagesDir(id).resolve(result.getPageIndex() + ".json"), objectMapper.writeValueAsBytes(page));
+    }
+
+    /** 0-based indices of the pages that already have a stored result. */
+    public BitSet donePages(String id) throws IOException {
+        BitSet done = new BitSet();
+        try (Stream<Path> files = Files.list(pagesDir(id))) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("\\d+\\.json"))
+                    .forEach(name -> done.set(Integer.parseInt(name.substring(0, name.length() - 5))));
+        }
+        return done;
+    }
+
+    /** Stored page results in page order, as {@code {page, type, text}} with 1-based page numbers. */
+    public List<Map<String, Object>> pages(String id) throws IOException {
+        List<Map<String, Object>> pages = new ArrayList<>();
+        BitSet done = donePages(id);
+        for (int page = done.nextSetBit(0); page >= 0; page = done.nextSetBit(page + 1)) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = objectMapper.readValue(pagesDir(id).resolve(page + ".json").toFile(),
+                    Map.class);
+            pages.add(result);
+        }
+        return pages;
+    }
+
+    /** Jobs that were queued or running when the service last stopped, oldest first. */
+    public List<ExtractionJob> unfinished() throws IOException {
+        List<ExtractionJob> jobs = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(dir)) {
+            for (Path jobDir : dirs.toList()) {
+                Optional<ExtractionJob> job = find(jobDir.getFileName().toString());
+                if (job.isPresent() && (job.get().getState() == ExtractionJob.State.QUEUED
+                        || job.get().getState() == ExtractionJob.State.RUNNING)) {
+                    jobs.add(job.get());
+                }
+            }
+        }
+        jobs.sort(Comparator.comparing(ExtractionJob::getCreatedAt));
+        return jobs;
+    }
+
+    public void delete(String id) throws IOException {
+        Path jobDir = dir.resolve(id);
+        if (!Files.exists(jobDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(jobDir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private Path pagesDir(String id) {
+        return dir.resolve(id).resolve(PAGES_DIR);
+    }
+
+    private static void write(Path file, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,143 @@
+package com.data.extract.docloader;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a rendered page into text regions with projection profiles: rows
+ * containing ink are grouped into blocks wherever the vertical gap between
+ * them is small, and each block is split into columns at wide horizontal
+ * gaps. Regions come back in reading order (top to bottom, then left to
+ * right within a block).
+ *
+ * This is deliberately simple: it finds the separate blocks of a form or
+ * letter (a printed body, a handwritten signature, a filled-in field next
+ * to its label), not lines or words. Gaps are relative to the page size, so
+ * the result does not depend on the render DPI.
+ */
+class LayoutAnalyzer {
+
+    /** Luminance below which a pixel counts as ink. */
+    private static final int INK_THRESHOLD = 160;
+
+    private final double blockGap;
+    private final double columnGap;
+    private final double minSize;
+
+    /**
+     * @param blockGap  vertical whitespace, as a fraction of page height, that separates two blocks
+     * @param columnGap horizontal whitespace, as a fraction of page width, that separates two columns
+     * @param minSize   regions smaller than this fraction of the page in both directions are dropped as specks
+     */
+    LayoutAnalyzer(double blockGap, double columnGap, double minSize) {
+        this.blockGap = blockGap;
+        this.columnGap = columnGap;
+        this.minSize = minSize;
+    }
+
+    List<Rectangle> regions(BufferedImage page) {
+        int width = page.getWidth();
+        int height = page.getHeight();
+        boolean[] ink = inkMask(page);
+
+        int[] rowInk = new int[height];
+        for (int y = 0; y < height; y++) {
+            int count = 0;
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                if (ink[i]) {
+                    count++;
+                }
+            }
+            rowInk[y] = count;
+        }
+
+        int minRowInk = Math.max(1, width / 1000);
+        int minHeight = (int) Math.ceil(height * minSize);
+        int minWidth = (int) Math.ceil(width * minSize);
+        int pad = Math.max(2, height / 400);
+        List<Rectangle> regions = new ArrayList<>();
+        for (int[] block : runs(rowInk, minRowInk, (int) Math.ceil(height * blockGap))) {
+            int[] columnInk = new int[width];
+            for (int y = block[0]; y < block[1]; y++) {
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    if (ink[i]) {
+                        columnInk[x]++;
+                    }
+                }
+            }
+            for (int[] column : runs(columnInk, 1, (int) Math.ceil(width * columnGap))) {
+                int top = firstInkRow(ink, width, column, block[0], block[1], 1);
+                int bottom = firstInkRow(ink, width, column, block[1] - 1, block[0] - 1, -1) + 1;
+                if (bottom - top < minHeight && column[1] - column[0] < minWidth) {
+                    continue;
+                }
+                Rectangle region = new Rectangle(column[0] - pad, top - pad, column[1] - column[0] + 2 * pad,
+                        bottom - top + 2 * pad);
+                regions.add(region.intersection(new Rectangle(0, 0, width, height)));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Half-open [start, end) runs where {@code profile} is at least
+     * {@code minValue}, merging runs separated by fewer than {@code maxGap}
+     * empty entries.
+     */
+    private static List<int[]> runs(int[] profile, int minValue, int maxGap) {
+        List<int[]> runs = new ArrayList<>();
+        int start = -1;
+        int lastInk = -1;
+        for (int i = 0; i < profile.length; i++) {
+            if (profile[i] < minValue) {
+                continue;
+            }
+            if (start < 0) {
+                start = i;
+            } else if (i - lastInk - 1 >= maxGap) {
+                runs.add(new int[] { start, lastInk + 1 });
+                start = i;
+            }
+            lastInk = i;
+        }
+        if (start >= 0) {
+            runs.add(new int[] { start, lastInk + 1 });
+        }
+        return runs;
+    }
+
+    /** First row, scanning from {@code from} towards {@code to}, with ink inside the column. */
+    private static int firstInkRow(boolean[] ink, int width, int[] column, int from, int to, int step) {
+        for (int y = from; y != to; y += step) {
+            for (int x = column[0], i = y * width + column[0]; x < column[1]; x++, i++) {
+                if (ink[i]) {
+                    return y;
+                }
+            }
+        }
+        return from;
+    }
+
+    private static boolean[] inkMask(BufferedImage page) {
+        int width = page.getWidth();
+        int height = page.getHeight();
+        boolean[] ink = new boolean[width * height];
+        int[] pixels;
+        if (page.getType() == BufferedImage.TYPE_INT_RGB && page.getRaster().getDataBuffer() instanceof DataBufferInt data
+                && page.getRaster().getParent() == null) {
+            pixels = data.getData();
+        } else {
+            pixels = page.getRGB(0, 0, width, height, null, 0, width);
+        }
+        for (int i = 0; i < ink.length; i++) {
+            int rgb = pixels[i];
+            // Integer approximation of Rec. 601 luma
+            int luma = (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+            ink[i] = luma < INK_THRESHOLD;
+        }
+        return ink;
+    }
+}
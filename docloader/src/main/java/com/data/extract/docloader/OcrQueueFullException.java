@@ -0,0 +1,19 @@
+package com.data.extract.docloader;
+
+/**
+ * Thrown when {@link OcrScheduler} cannot admit another request. Carries the
+ * number of seconds the client should wait before retrying.
+ */
+public class OcrQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OcrQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
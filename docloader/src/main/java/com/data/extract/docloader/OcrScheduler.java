@@ -0,0 +1,232 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OCR worker pool shared by every extraction request.
+ *
+ * Each request gets its own {@link Lane}. Workers serve lanes round-robin, one
+ * page at a time, so a 1000-page upload cannot starve a one-page upload that
+ * arrives after it. Requests are admitted only while the number of pages still
+ * waiting for OCR stays under {@code docloader.ocr.max-queued-pages}; beyond
+ * that {@link #open} throws {@link OcrQueueFullException} with an estimate of
+ * when to retry.
+ */
+@Component
+public class OcrScheduler {
+
+    private static final double INITIAL_PAGE_SECONDS = 2.0;
+
+    private final int workers;
+    private final int maxQueuedPages;
+    private final int maxActiveRequests;
+
+    private final ExecutorService workerPool;
+    private final ExecutorService stageExecutor;
+    private final LinkedBlockingQueue<Lane> readyLanes = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger outstandingPages = new AtomicInteger();
+    private final Counter rejectedRequests;
+
+    /**
+     * Exponentially weighted page OCR time, used for the Retry-After estimate;
+     * the bits of a double, so concurrent workers can update it without losing samples.
+     */
+    private final AtomicLong avgPageSeconds = new AtomicLong(Double.doubleToLongBits(INITIAL_PAGE_SECONDS));
+
+    public OcrScheduler(@Value("${docloader.ocr.workers:0}") int workers,
+            @Value("${docloader.ocr.max-queued-pages:2000}") int maxQueuedPages,
+            @Value("${docloader.ocr.max-active-requests:64}") int maxActiveRequests,
+            MeterRegistry registry) {
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.maxQueuedPages = maxQueuedPages;
+        this.maxActiveRequests = maxActiveRequests;
+
+        this.workerPool = Executors.newFixedThreadPool(this.workers, named("docloader-ocr-"));
+        this.stageExecutor = Executors.newCachedThreadPool(named("docloader-stage-"));
+        for (int i = 0; i < this.workers; i++) {
+            workerPool.execute(this::dispatchLoop);
+        }
+
+        Gauge.builder("docloader.ocr.queue.depth", queuedTasks, AtomicInteger::get)
+                .description("Pages waiting for an OCR worker").register(registry);
+        Gauge.builder("docloader.ocr.workers.active", activeWorkers, AtomicInteger::get)
+                .description("OCR workers currently processing a page").register(registry);
+        Gauge.builder("docloader.ocr.workers", () -> this.workers)
+                .description("Size of the OCR worker pool").register(registry);
+        Gauge.builder("docloader.ocr.requests.active", activeRequests, AtomicInteger::get)
+                .description("Extraction requests currently admitted").register(registry);
+        Gauge.builder("docloader.ocr.pages.outstanding", outstandingPages, AtomicInteger::get)
+                .description("Pages admitted but not yet recognised").register(registry);
+        this.rejectedRequests = Counter.builder("docloader.ocr.requests.rejected")
+                .description("Extraction requests rejected because the OCR queue was full").register(registry);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Executor for the per-request render and classify loops. These block on
+     * the pipeline queues, so they are kept off the OCR workers.
+     */
+    public ExecutorService stageExecutor() {
+        return stageExecutor;
+    }
+
+    /**
+     * Admits a request of {@code pageCount} pages, or rejects it when the
+     * scheduler is saturated. An idle scheduler always admits, however large
+     * the document.
+     */
+    public Lane open(int pageCount) {
+        synchronized (this) {
+            int outstanding = outstandingPages.get();
+            boolean saturated = activeRequests.get() >= maxActiveRequests
+                    || (outstanding > 0 && outstanding + pageCount > maxQueuedPages);
+            if (saturated) {
+                rejectedRequests.increment();
+                throw new OcrQueueFullException(
+                        "OCR queue is full (" + outstanding + " pages outstanding)", retryAfterSeconds());
+            }
+            activeRequests.incrementAndGet();
+            outstandingPages.addAndGet(pageCount);
+        }
+        return new Lane(pageCount);
+    }
+
+    /** Rough time until the current backlog drains, clamped to [1, 300] seconds. */
+    long retryAfterSeconds() {
+        double seconds = outstandingPages.get() * Double.longBitsToDouble(avgPageSeconds.get()) / workers;
+        return Math.max(1, Math.min(300, (long) Math.ceil(seconds)));
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Lane lane;
+            try {
+                lane = readyLanes.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Runnable task = lane.next();
+            if (task == null) {
+                continue;
+            }
+            activeWorkers.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                System.err.println("OCR task failed: " + t.getMessage());
+            } finally {
+                activeWorkers.decrementAndGet();
+                lane.pageDone();
+                recordPageSeconds((System.nanoTime() - start) / 1_000_000_000.0);
+            }
+        }
+    }
+
+    private void recordPageSeconds(double seconds) {
+        avgPageSeconds.getAndUpdate(bits ->
+                Double.doubleToLongBits(0.9 * Double.longBitsToDouble(bits) + 0.1 * seconds));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Per-request queue of OCR tasks. A lane sits in the ready queue at most
+     * once, and workers put it back at the tail after taking a single task.
+     */
+    public class Lane implements Executor, AutoCloseable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicInteger unfinishedPages;
+
+        private Lane(int pageCount) {
+            this.unfinishedPages = new AtomicInteger(pageCount);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (closed.get()) {
+                throw new RejectedExecutionException("Lane is closed");
+            }
+            tasks.add(task);
+            queuedTasks.incrementAndGet();
+            if (scheduled.compareAndSet(false, true)) {
+                readyLanes.add(this);
+            }
+        }
+
+        private Runnable next() {
+            Runnable task = tasks.poll();
+            if (task != null) {
+                queuedTasks.decrementAndGet();
+            }
+            if (!tasks.isEmpty()) {
+                readyLanes.add(this);
+            } else {
+                scheduled.set(false);
+                // A task may have been added between the poll and clearing the flag
+                if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    readyLanes.add(this);
+                }
+            }
+            return task;
+        }
+
+        private void pageDone() {
+            if (unfinishedPages.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                outstandingPages.decrementAndGet();
+            }
+        }
+
+        /** Drops tasks that have not started and releases the rest of the admission. */
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                queuedTasks.decrementAndGet();
+            }
+            outstandingPages.addAndGet(-unfinishedPages.getAndSet(0));
+            activeRequests.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.data.extract.docloader;
+
+import java.io.IOException;
+
+/**
+ * Passes pages on to {@code downstream} strictly in page order, holding back
+ * pages that arrive early until every page before them has been delivered.
+ * Used on the single thread that delivers a run's pages; with the pipeline
+ * streaming OCR results in page order, what it holds back is text-layer pages,
+ * which are in memory from the start anyway.
+ */
+class OrderedPageListener implements PagePipeline.PageListener {
+
+    private final PagePipeline.PageListener downstream;
+    private final PageResult[] pending;
+    private int next;
+
+    OrderedPageListener(int pageCount, PagePipeline.PageListener downstream) {
+        this.downstream = downstream;
+        this.pending = new PageResult[pageCount];
+    }
+
+    @Override
+    public void onPage(PageResult result) throws IOException {
+        pending[result.pageIndex] = result;
+        while (next < pending.length && pending[next] != null) {
+            PageResult ready = pending[next];
+            pending[next++] = null;
+            downstream.onPage(ready);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.data.extract.docloader;
+
+import com.google.protobuf.ByteString;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Encodes rendered pages to PNG for the vision OCR call without touching the
+ * disk. Each thread encodes into its own reusable direct buffer, so the
+ * encoder does not regrow a stream per page; the result is copied out once,
+ * since the vision client may still hold a page after its caller has moved
+ * on (e.g. in a batch being sent or retried).
+ */
+class PageImageEncoder {
+
+    private static final int INITIAL_CAPACITY = 4 << 20;
+
+    /**
+     * PNG is lossless whatever the setting; a low deflate level keeps encode
+     * time down at the cost of a slightly larger payload.
+     */
+    private static final float COMPRESSION_QUALITY = 0.75f;
+
+    private final ThreadLocal<DirectBufferImageOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new DirectBufferImageOutputStream(INITIAL_CAPACITY));
+
+    /** The returned bytes are the caller's own; later encodes on this thread do not touch them. */
+    ByteString encodePng(BufferedImage image) throws IOException {
+        DirectBufferImageOutputStream out = buffers.get();
+        out.clear();
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(COMPRESSION_QUALITY);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return ByteString.copyFrom(out.contents());
+    }
+}
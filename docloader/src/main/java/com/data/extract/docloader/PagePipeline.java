@@ -0,0 +1,442 @@
+package com.data.extract.docloader;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged page pipeline: render -> classify -> OCR.
+ *
+ * Rendering runs on a single thread because PDFBox documents are not safe for
+ * concurrent access. Rendered pages reach the classifiers through a bounded
+ * queue; each classifier takes whatever is queued, up to
+ * {@code classifyBatchSize} pages, as one batch. Classified pages are handed
+ * to the OCR executor only while fewer than {@code ocrInFlight} of them are
+ * outstanding. At most
+ * {@code 1 + queueCapacity + classifyThreads * classifyBatchSize + ocrInFlight}
+ * rendered pages are therefore alive at any time, regardless of the document
+ * size.
+ *
+ * When streaming, OCR workers only hand each result to a per-run queue; the
+ * thread that called {@link #stream} delivers them to the listener. A page
+ * keeps its OCR slot until the listener has taken it (and, in page order,
+ * until every earlier page has been delivered), so a slow consumer holds up
+ * only its own run, through the classifier waiting for a slot, and never an
+ * OCR worker; and at most {@code ocrInFlight} results wait for delivery.
+ *
+ * An optional classification renderer lets the classifier work on its own
+ * small raster, rendered next to the OCR raster, instead of a downscaled copy
+ * of the full-resolution page.
+ *
+ * The pipeline either owns its threads (standalone constructor) or runs on
+ * executors shared across requests, such as the ones from {@link OcrScheduler}.
+ */
+public class PagePipeline {
+
+    @FunctionalInterface
+    public interface PageRenderer {
+        BufferedImage render(int pageIndex) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface PageClassifier {
+        String classify(BufferedImage image);
+
+        /** Classifies several pages in one call; override when the model can batch. */
+        default List<String> classifyBatch(List<BufferedImage> images) {
+            List<String> types = new ArrayList<>(images.size());
+            for (BufferedImage image : images) {
+                types.add(classify(image));
+            }
+            return types;
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageRecognizer {
+        String recognize(int pageIndex, BufferedImage image, String type) throws IOException;
+    }
+
+    /**
+     * Receives each page once it has been recognised. Called only from the
+     * thread running {@link #stream}, so it may block (e.g. on a slow client)
+     * without tying up OCR workers; a failure fails the whole run.
+     */
+    @FunctionalInterface
+    public interface PageListener {
+        void onPage(PageResult result) throws IOException;
+    }
+
+    /** Marker that tells a classifier there is nothing more to take. */
+    private static final StagedPage END = new StagedPage(-1, -1, null, null, null);
+    /** Wakes the delivering thread when the run has failed. */
+    private static final Delivery FAILED = new Delivery(-1, null);
+
+    private final int queueCapacity;
+    private final int classifyThreads;
+    private final int classifyBatchSize;
+    private final int ocrInFlight;
+    private final ExecutorService stageExecutor;
+    private final Executor ocrExecutor;
+
+    /**
+     * Standalone pipeline that starts its own render, classify and OCR threads
+     * for every run and stops them when the run ends.
+     */
+    public PagePipeline(int queueCapacity, int classifyThreads, int ocrThreads) {
+        this(queueCapacity, classifyThreads, 1, ocrThreads, null, null);
+    }
+
+    /**
+     * Pipeline running its render/classify loops on {@code stageExecutor} and
+     * its OCR tasks on {@code ocrExecutor}. Neither executor is shut down by
+     * the pipeline.
+     */
+    public PagePipeline(int queueCapacity, int classifyThreads, int classifyBatchSize, int ocrInFlight,
+            ExecutorService stageExecutor, Executor ocrExecutor) {
+        if (queueCapacity < 1 || classifyThreads < 1 || classifyBatchSize < 1 || ocrInFlight < 1) {
+            throw new IllegalArgumentException("Queue capacity, batch size and thread counts must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        this.classifyThreads = classifyThreads;
+        this.classifyBatchSize = classifyBatchSize;
+        this.ocrInFlight = ocrInFlight;
+        this.stageExecutor = stageExecutor;
+        this.ocrExecutor = ocrExecutor;
+    }
+
+    /**
+     * One render thread, one classifier thread (ONNX Runtime parallelises a
+     * single inference internally) and one OCR worker per core.
+     */
+    public static PagePipeline withDefaults() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new PagePipeline(2, 1, cores);
+    }
+
+    public List<PageResult> run(int pageCount, PageRenderer renderer, PageClassifier classifier,
+            PageRecognizer recognizer) throws IOException {
+        int[] pages = new int[pageCount];
+        Arrays.setAll(pages, i -> i);
+        return run(pages, renderer, classifier, recognizer);
+    }
+
+    /**
+     * Runs only the given pages, e.g. the ones without a usable text layer.
+     * Results come back in the order of {@code pageIndices}.
+     */
+    public List<PageResult> run(int[] pageIndices, PageRenderer renderer, PageClassifier classifier,
+            PageRecognizer recognizer) throws IOException {
+        return run(pageIndices, renderer, null, classifier, recognizer);
+    }
+
+    /**
+     * Like {@link #run(int[], PageRenderer, PageClassifier, PageRecognizer)},
+     * but classifies the image from {@code classificationRenderer} while OCR
+     * still gets the one from {@code renderer}. The classification image is
+     * dropped once the page is classified.
+     */
+    public List<PageResult> run(int[] pageIndices, PageRenderer renderer, PageRenderer classificationRenderer,
+            PageClassifier classifier, PageRecognizer recognizer) throws IOException {
+        PageResult[] results = new PageResult[pageIndices.length];
+        execute(pageIndices, renderer, classificationRenderer, classifier, recognizer,
+                (slot, result) -> results[slot] = result);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Hands each page to {@code listener} in completion order instead of
+     * collecting results, so nothing is kept once a page has been delivered.
+     */
+    public void stream(int[] pageIndices, PageRenderer renderer, PageRenderer classificationRenderer,
+            PageClassifier classifier, PageRecognizer recognizer, PageListener listener) throws IOException {
+        stream(pageIndices, renderer, classificationRenderer, classifier, recognizer, false, listener);
+    }
+
+    /**
+     * Like {@link #stream(int[], PageRenderer, PageRenderer, PageClassifier, PageRecognizer, PageListener)},
+     * in the order of {@code pageIndices} when {@code inOrder} is set. Pages
+     * reach OCR in that order only with a single classifier thread, which
+     * in-order streaming therefore requires; otherwise every OCR slot could
+     * end up held by pages waiting for one that has none.
+     */
+    public void stream(int[] pageIndices, PageRenderer renderer, PageRenderer classificationRenderer,
+            PageClassifier classifier, PageRecognizer recognizer, boolean inOrder, PageListener listener)
+            throws IOException {
+        if (inOrder && classifyThreads > 1) {
+            throw new IllegalStateException("In-order streaming needs a single classifier thread");
+        }
+        execute(pageIndices, renderer, classificationRenderer, classifier, recognizer, null,
+                new Delivering(inOrder, listener));
+    }
+
+    private void execute(int[] pageIndices, PageRenderer renderer, PageRenderer classificationRenderer,
+            PageClassifier classifier, PageRecognizer recognizer, ResultSink sink) throws IOException {
+        execute(pageIndices, renderer, classificationRenderer, classifier, recognizer, sink, null);
+    }
+
+    private void execute(int[] pageIndices, PageRenderer renderer, PageRenderer classificationRenderer,
+            PageClassifier classifier, PageRecognizer recognizer, ResultSink sink, Delivering delivering)
+            throws IOException {
+        ExecutorService ownStages = stageExecutor == null ? Executors.newFixedThreadPool(1 + classifyThreads) : null;
+        ExecutorService ownOcr = ocrExecutor == null ? Executors.newFixedThreadPool(ocrInFlight) : null;
+        try {
+            new Run(pageIndices, ownStages != null ? ownStages : stageExecutor,
+                    ownOcr != null ? ownOcr : ocrExecutor, sink, delivering).execute(renderer,
+                    classificationRenderer, classifier, recognizer);
+        } finally {
+            if (ownStages != null) {
+                ownStages.shutdownNow();
+            }
+            if (ownOcr != null) {
+                ownOcr.shutdownNow();
+            }
+        }
+    }
+
+    /** State of a single {@link #run} call. */
+    private class Run {
+        private final int[] pages;
+        private final ExecutorService stages;
+        private final Executor ocr;
+        private final BlockingQueue<StagedPage> rendered = new ArrayBlockingQueue<>(queueCapacity);
+        private final Semaphore ocrPermits = new Semaphore(ocrInFlight);
+        private final ResultSink sink;
+        private final Delivering delivering;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private final List<Future<?>> stageFutures = new ArrayList<>();
+
+        /** Exactly one of {@code sink} (called on the OCR threads) and {@code delivering} is set. */
+        Run(int[] pages, ExecutorService stages, Executor ocr, ResultSink sink, Delivering delivering) {
+            this.pages = pages;
+            this.stages = stages;
+            this.ocr = ocr;
+            this.sink = sink;
+            this.delivering = delivering;
+            this.remaining = new AtomicInteger(pages.length);
+        }
+
+        void execute(PageRenderer renderer, PageRenderer classificationRenderer,
+                PageClassifier classifier, PageRecognizer recognizer) throws IOException {
+            if (pages.length == 0) {
+                return;
+            }
+            try {
+                synchronized (stageFutures) {
+                    stageFutures.add(stages.submit(() -> guard(() -> renderLoop(renderer, classificationRenderer))));
+                    for (int i = 0; i < classifyThreads; i++) {
+                        stageFutures.add(stages.submit(() -> guard(() -> classifyLoop(classifier, recognizer))));
+                    }
+                }
+                if (delivering != null) {
+                    deliver();
+                }
+                finished.get();
+            } catch (InterruptedException e) {
+                fail(e);
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during PDF extraction", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error during parallel PDF extraction", e.getCause());
+            }
+        }
+
+        private void renderLoop(PageRenderer renderer, PageRenderer classificationRenderer) throws Exception {
+            for (int slot = 0; slot < pages.length; slot++) {
+                int pageIndex = pages[slot];
+                BufferedImage preview = classificationRenderer != null ? classificationRenderer.render(pageIndex)
+                        : null;
+                rendered.put(new StagedPage(slot, pageIndex, renderer.render(pageIndex), preview, null));
+            }
+            for (int i = 0; i < classifyThreads; i++) {
+                rendered.put(END);
+            }
+        }
+
+        private void classifyLoop(PageClassifier classifier, PageRecognizer recognizer) throws Exception {
+            List<StagedPage> batch = new ArrayList<>(classifyBatchSize);
+            boolean ended = false;
+            while (!ended) {
+                // Block for one page, then batch whatever else is already waiting
+                batch.add(rendered.take());
+                rendered.drainTo(batch, classifyBatchSize - 1);
+
+                List<BufferedImage> images = new ArrayList<>(batch.size());
+                int ends = 0;
+                for (StagedPage page : batch) {
+                    if (page == END) {
+                        ends++;
+                    } else {
+                        images.add(page.preview != null ? page.preview : page.image);
+                    }
+                }
+                // Hand back end markers that belong to the other classifiers
+                for (int i = 1; i < ends; i++) {
+                    rendered.put(END);
+                }
+                ended = ends > 0;
+
+                List<String> types = images.isEmpty() ? List.of() : classifier.classifyBatch(images);
+                int next = 0;
+                for (StagedPage page : batch) {
+                    if (page == END) {
+                        continue;
+                    }
+                    String type = types.get(next++);
+                    ocrPermits.acquire();
+                    StagedPage classified = new StagedPage(page.slot, page.pageIndex, page.image, null, type);
+                    ocr.execute(() -> recognize(classified, recognizer));
+                }
+                batch.clear();
+            }
+        }
+
+        private void recognize(StagedPage page, PageRecognizer recognizer) {
+            boolean handedOver = false;
+            try {
+                if (finished.isDone()) {
+                    return;
+                }
+                String text = recognizer.recognize(page.pageIndex, page.image, page.type);
+                PageResult result = new PageResult(page.pageIndex, page.type, text);
+                if (delivering != null) {
+                    // The delivering thread releases the permit once the listener has the page
+                    delivering.queue.add(new Delivery(page.slot, result));
+                    handedOver = true;
+                } else {
+                    sink.accept(page.slot, result);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    finished.complete(null);
+                }
+            } catch (Throwable t) {
+                fail(new IOException("Failed to process page " + page.pageIndex, t));
+            } finally {
+                if (!handedOver) {
+                    ocrPermits.release();
+                }
+            }
+        }
+
+        /** Runs on the calling thread: passes queued results to the listener until every page is delivered. */
+        private void deliver() throws IOException, InterruptedException, ExecutionException {
+            PageResult[] held = delivering.inOrder ? new PageResult[pages.length] : null;
+            int delivered = 0;
+            while (delivered < pages.length) {
+                Delivery next = delivering.queue.take();
+                if (next == FAILED) {
+                    finished.get();
+                }
+                if (held == null) {
+                    delivered += hand(next.result);
+                    continue;
+                }
+                held[next.slot] = next.result;
+                while (delivered < pages.length && held[delivered] != null) {
+                    PageResult ready = held[delivered];
+                    held[delivered] = null;
+                    delivered += hand(ready);
+                }
+            }
+        }
+
+        private int hand(PageResult result) throws IOException {
+            try {
+                delivering.listener.onPage(result);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                throw e;
+            } finally {
+                ocrPermits.release();
+            }
+            return 1;
+        }
+
+        /**
+         * Runs a stage loop and turns any failure into a failed run. Being
+         * interrupted is expected once the run has already finished or failed.
+         */
+        private void guard(StageBody body) {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                if (!finished.isDone()) {
+                    fail(e);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        /** Records the first failure and stops every stage still blocked on a queue or permit. */
+        private void fail(Throwable t) {
+            if (finished.completeExceptionally(t)) {
+                synchronized (stageFutures) {
+                    stageFutures.forEach(f -> f.cancel(true));
+                }
+                if (delivering != null) {
+                    delivering.queue.add(FAILED);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResultSink {
+        void accept(int slot, PageResult result) throws IOException;
+    }
+
+    /**
+     * Results waiting for the streaming thread. Unbounded as a queue, but it
+     * never holds more than {@code ocrInFlight} pages, as each keeps its OCR
+     * permit until delivered.
+     */
+    private static class Delivering {
+        final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<>();
+        final boolean inOrder;
+        final PageListener listener;
+
+        Delivering(boolean inOrder, PageListener listener) {
+            this.inOrder = inOrder;
+            this.listener = listener;
+        }
+    }
+
+    private record Delivery(int slot, PageResult result) {
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    private static class StagedPage {
+        final int slot;
+        final int pageIndex;
+        final BufferedImage image;
+        final BufferedImage preview;
+        final String type;
+
+        StagedPage(int slot, int pageIndex, BufferedImage image, BufferedImage preview, String type) {
+            this.slot = slot;
+            this.pageIndex = pageIndex;
+            this.image = image;
+            this.preview = preview;
+            this.type = type;
+        }
+    }
+}
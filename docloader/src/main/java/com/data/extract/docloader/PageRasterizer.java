@@ -0,0 +1,81 @@
+package com.data.extract.docloader;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Renders the pages of one document at the two resolutions the pipeline
+ * needs: a small raster of exactly the classifier's input size, drawn
+ * straight from the page, and an OCR raster whose DPI is chosen per page so
+ * that it holds about {@code targetPixels} pixels, clamped to
+ * [{@code minDpi}, {@code maxDpi}]. A Letter or A4 page stays close to
+ * 300 DPI, while large-format pages are rendered at a lower DPI instead of
+ * producing rasters several times bigger.
+ *
+ * Like the {@link PDDocument} it wraps, an instance must only be used from
+ * one thread at a time.
+ */
+public class PageRasterizer {
+
+    private static final float POINTS_PER_INCH = 72f;
+
+    private final PDDocument document;
+    private final PDFRenderer renderer;
+    private final long targetPixels;
+    private final float minDpi;
+    private final float maxDpi;
+
+    public PageRasterizer(PDDocument document, long targetPixels, float minDpi, float maxDpi) {
+        if (targetPixels < 1 || minDpi <= 0 || maxDpi < minDpi) {
+            throw new IllegalArgumentException("Target pixels and DPI bounds must be positive with min <= max");
+        }
+        this.document = document;
+        this.renderer = new PDFRenderer(document);
+        this.targetPixels = targetPixels;
+        this.minDpi = minDpi;
+        this.maxDpi = maxDpi;
+    }
+
+    /** DPI at which {@link #renderForOcr} renders the given page. */
+    public float dpiFor(int pageIndex) {
+        PDRectangle box = document.getPage(pageIndex).getCropBox();
+        double squareInches = (box.getWidth() / POINTS_PER_INCH) * (box.getHeight() / POINTS_PER_INCH);
+        float dpi = squareInches > 0 ? (float) Math.sqrt(targetPixels / squareInches) : maxDpi;
+        return Math.max(minDpi, Math.min(maxDpi, dpi));
+    }
+
+    public BufferedImage renderForOcr(int pageIndex) throws IOException {
+        return renderer.renderImageWithDPI(pageIndex, dpiFor(pageIndex));
+    }
+
+    /**
+     * Renders the page directly into a {@code width} x {@code height}
+     * TYPE_INT_RGB image, stretching it to fill the raster the same way the
+     * old full-resolution render followed by a resize did.
+     */
+    public BufferedImage renderAtSize(int pageIndex, int width, int height) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        PDRectangle box = page.getCropBox();
+        boolean quarterTurn = page.getRotation() % 180 != 0;
+        float pageWidth = quarterTurn ? box.getHeight() : box.getWidth();
+        float pageHeight = quarterTurn ? box.getWidth() : box.getHeight();
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setBackground(Color.WHITE);
+            g.clearRect(0, 0, width, height);
+            renderer.renderPageToGraphics(pageIndex, g, width / pageWidth, height / pageHeight);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,29 @@
+package com.data.extract.docloader;
+
+/**
+ * Text extracted from a single page, together with the path the page took
+ * through the pipeline ("Printed", "Handwritten", ...).
+ */
+public class PageResult {
+    final int pageIndex;
+    final String type;
+    final String text;
+
+    public PageResult(int pageIndex, String type, String text) {
+        this.pageIndex = pageIndex;
+        this.type = type;
+        this.text = text;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
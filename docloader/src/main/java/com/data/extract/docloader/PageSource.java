@@ -0,0 +1,26 @@
+package com.data.extract.docloader;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The pages of one uploaded document, as rasters for the pipeline: pages of
+ * a PDF ({@link PdfPageSource}) or frames of an image file
+ * ({@link ImageFramePageSource}). Like the documents behind them, sources are
+ * only used from the pipeline's single render thread.
+ */
+public interface PageSource extends Closeable {
+
+    int getPageCount();
+
+    /** The page at OCR resolution. */
+    BufferedImage renderForOcr(int pageIndex) throws IOException;
+
+    /**
+     * Renderer for a raster of exactly the classifier's input size, or
+     * {@code null} when the source has no cheaper way to produce one than
+     * downscaling the OCR raster.
+     */
+    PagePipeline.PageRenderer classificationRenderer(int width, int height);
+}
@@ -0,0 +1,171 @@
+package com.data.extract.docloader;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide printed/handwritten classifier.
+ *
+ * The ONNX model is loaded and optimised once at startup into a single
+ * {@link OrtSession}, which is safe to run from many threads at once. Session
+ * tuning comes from the {@code docloader.onnx.*} properties. When
+ * {@code docloader.onnx.optimized-model-path} is set, the optimised graph is
+ * written there on the first start and loaded directly on later starts.
+ *
+ * If the model cannot be loaded and {@code docloader.onnx.required} is false,
+ * every page is classified as Printed, which matches the old per-page
+ * fallback when classification failed.
+ */
+@Component
+public class PageTypeClassifier implements PagePipeline.PageClassifier {
+
+    private final String modelPath;
+    private final String optimizedModelPath;
+    private final OrtSession.SessionOptions.OptLevel optimizationLevel;
+    private final int intraOpThreads;
+    private final int interOpThreads;
+    private final boolean memoryArena;
+    private final boolean required;
+    private final int batchSize;
+    private final int concurrentRuns;
+    private final MeterRegistry registry;
+
+    private OrtSession session;
+    private HandwritingClassifier classifier;
+
+    public PageTypeClassifier(
+            @Value("${docloader.onnx.model-path:C:\\models\\model.onnx}") String modelPath,
+            @Value("${docloader.onnx.optimized-model-path:}") String optimizedModelPath,
+            @Value("${docloader.onnx.optimization-level:ALL_OPT}") OrtSession.SessionOptions.OptLevel optimizationLevel,
+            @Value("${docloader.onnx.intra-op-threads:0}") int intraOpThreads,
+            @Value("${docloader.onnx.inter-op-threads:0}") int interOpThreads,
+            @Value("${docloader.onnx.memory-arena:true}") boolean memoryArena,
+            @Value("${docloader.onnx.required:false}") boolean required,
+            @Value("${docloader.classifier.batch-size:4}") int batchSize,
+            @Value("${docloader.classifier.concurrent-runs:2}") int concurrentRuns,
+            MeterRegistry registry) {
+        this.modelPath = modelPath;
+        this.optimizedModelPath = optimizedModelPath;
+        this.optimizationLevel = optimizationLevel;
+        this.intraOpThreads = intraOpThreads;
+        this.interOpThreads = interOpThreads;
+        this.memoryArena = memoryArena;
+        this.required = required;
+        this.batchSize = batchSize;
+        this.concurrentRuns = concurrentRuns;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void load() throws OrtException {
+        long start = System.nanoTime();
+        try {
+            OrtEnvironment env = OrtEnvironment.getEnvironment();
+            boolean cached = isOptimizedModelCurrent();
+            try (OrtSession.SessionOptions options = sessionOptions(cached)) {
+                session = env.createSession(cached ? optimizedModelPath : modelPath, options);
+            }
+            Timer inferenceTimer = Timer.builder("docloader.classifier.inference")
+                    .description("ONNX classifier run per batch")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            classifier = new HandwritingClassifier(env, session, batchSize, concurrentRuns, inferenceTimer);
+
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("docloader.classifier.model.load")
+                    .description("Time to load and optimise the ONNX model")
+                    .tag("source", cached ? "optimized-cache" : "model")
+                    .register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            System.out.println("Loaded classifier model from " + (cached ? optimizedModelPath : modelPath)
+                    + " in " + elapsed / 1_000_000 + " ms (batch size " + classifier.getBatchSize() + ")");
+        } catch (OrtException | RuntimeException e) {
+            if (required) {
+                throw e;
+            }
+            System.err.println("Classifier model unavailable, all pages will be treated as Printed: "
+                    + e.getMessage());
+        }
+    }
+
+    private OrtSession.SessionOptions sessionOptions(boolean loadingOptimizedModel) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        // A cached graph is already optimised, so don't pay for optimisation again
+        options.setOptimizationLevel(loadingOptimizedModel ? OrtSession.SessionOptions.OptLevel.NO_OPT
+                : optimizationLevel);
+        if (!loadingOptimizedModel && !optimizedModelPath.isBlank()) {
+            options.setOptimizedModelFilePath(optimizedModelPath);
+        }
+        if (intraOpThreads > 0) {
+            options.setIntraOpNumThreads(intraOpThreads);
+        }
+        if (interOpThreads > 0) {
+            options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.PARALLEL);
+            options.setInterOpNumThreads(interOpThreads);
+        }
+        options.setCPUArenaAllocator(memoryArena);
+        return options;
+    }
+
+    /** True when the optimised model cache exists and is newer than the source model. */
+    private boolean isOptimizedModelCurrent() {
+        if (optimizedModelPath.isBlank()) {
+            return false;
+        }
+        try {
+            Path cache = Path.of(optimizedModelPath);
+            Path model = Path.of(modelPath);
+            return Files.isRegularFile(cache) && Files.isRegularFile(model)
+                    && Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(model)) >= 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Pages the pipeline should hand over per {@link #classifyBatch} call. */
+    public int getBatchSize() {
+        return classifier != null ? classifier.getBatchSize() : batchSize;
+    }
+
+    /** Size of the raster the model takes; render classification images at this size. */
+    public int getInputWidth() {
+        return classifier != null ? classifier.getInputWidth() : HandwritingClassifier.DEFAULT_WIDTH;
+    }
+
+    public int getInputHeight() {
+        return classifier != null ? classifier.getInputHeight() : HandwritingClassifier.DEFAULT_HEIGHT;
+    }
+
+    @Override
+    public String classify(BufferedImage image) {
+        return classifier != null ? classifier.classify(image) : HandwritingClassifier.PRINTED;
+    }
+
+    @Override
+    public List<String> classifyBatch(List<BufferedImage> images) {
+        return classifier != null
+                ? classifier.classifyBatch(images)
+                : Collections.nCopies(images.size(), HandwritingClassifier.PRINTED);
+    }
+
+    @PreDestroy
+    public void close() throws OrtException {
+        if (session != null) {
+            session.close();
+        }
+    }
+}
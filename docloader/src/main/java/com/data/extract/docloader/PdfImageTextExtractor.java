@@ -1,248 +1,403 @@
 package com.data.extract.docloader;
 
-import ai.onnxruntime.*;
-import net.sourceforge.tess4j.Tesseract;
-
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-
-import com.google.cloud.vertexai.VertexAI;
-import com.google.cloud.vertexai.api.GenerateContentResponse;
-import com.google.cloud.vertexai.generativeai.ContentMaker;
-import com.google.cloud.vertexai.generativeai.GenerativeModel;
-import com.google.cloud.vertexai.generativeai.PartMaker;
-import com.google.cloud.vertexai.generativeai.ResponseHandler;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+@Component
 public class PdfImageTextExtractor {
 
-    private static final String TESSDATA_PATH = "C:\\Program Files\\Tesseract-OCR\\tessdata";
-    private static final String MODEL_PATH = "C:\\models\\model.onnx";
+    private final OcrScheduler scheduler;
+    private final TesseractEnginePool tesseractPool;
+    private final GeminiVisionClient vision;
+    private final RegionOcr regionOcr;
+    private final PageTypeClassifier classifier;
+    private final TextLayerExtractor textLayerExtractor;
+    private final ResultCache cache;
+    private final ExtractionMetrics metrics;
+    private final PageImageEncoder encoder = new PageImageEncoder();
+    private final boolean tempFileFallback;
+    private final Path tempDir;
+    private final long renderTargetPixels;
+    private final float renderMinDpi;
+    private final float renderMaxDpi;
+    private final Path spoolDir;
+    private final long maxMainMemoryBytes;
+    private final Timer ioTimer;
+
+    public PdfImageTextExtractor(OcrScheduler scheduler, TesseractEnginePool tesseractPool,
+            GeminiVisionClient vision, RegionOcr regionOcr, PageTypeClassifier classifier,
+            TextLayerExtractor textLayerExtractor,
+            ResultCache cache, ExtractionMetrics metrics,
+            @Value("${docloader.ocr.temp-file-fallback:false}") boolean tempFileFallback,
+            @Value("${docloader.ocr.temp-dir:${java.io.tmpdir}}") String tempDir,
+            @Value("${docloader.render.target-pixels:8500000}") long renderTargetPixels,
+            @Value("${docloader.render.min-dpi:150}") float renderMinDpi,
+            @Value("${docloader.render.max-dpi:300}") float renderMaxDpi,
+            @Value("${docloader.upload.spool-dir:${java.io.tmpdir}}") String spoolDir,
+            @Value("${docloader.pdf.max-main-memory-bytes:67108864}") long maxMainMemoryBytes,
+            MeterRegistry registry) {
+        this.scheduler = scheduler;
+        this.tesseractPool = tesseractPool;
+        this.vision = vision;
+        this.regionOcr = regionOcr;
+        this.classifier = classifier;
+        this.textLayerExtractor = textLayerExtractor;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.tempFileFallback = tempFileFallback;
+        this.tempDir = Path.of(tempDir);
+        this.renderTargetPixels = renderTargetPixels;
+        this.renderMinDpi = renderMinDpi;
+        this.renderMaxDpi = renderMaxDpi;
+        this.spoolDir = Path.of(spoolDir);
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.ioTimer = Timer.builder("docloader.page.io")
+                .description("Temp file write and read-back of a rendered page (fallback mode only)")
+                .register(registry);
+    }
 
-    private static final ExecutorService executor = Executors.newFixedThreadPool(5);
+    /**
+     * Extracts the text of an uploaded PDF, multi-page TIFF, PNG or JPEG,
+     * returning the cached result when the exact same file has been extracted
+     * before. The upload is spooled to disk (and hashed on the way) rather
+     * than read into the heap.
+     */
+    public String extract(InputStream upload) throws IOException {
+        return extract(upload, new ExtractionStats());
+    }
 
-    public static String extract(PDDocument document) throws IOException {
-        StringBuilder extractedText = new StringBuilder();
+    /** Same as {@link #extract(InputStream)}, recording pages, bytes and stage times in {@code stats}. */
+    public String extract(InputStream in, ExtractionStats stats) throws IOException {
+        try (SpooledUpload upload = metrics.time(ExtractionStats.Stage.LOAD, stats,
+                () -> SpooledUpload.spool(in, spoolDir))) {
+            metrics.document(upload.getSize(), stats);
+            String cached = cache.get(ResultCache.Level.DOCUMENT, upload.getDigest(), upload.getSize());
+            if (cached != null) {
+                System.out.println("Document " + upload.getDigest().substring(0, 12)
+                        + " served from the result cache");
+                stats.documentCached();
+                return cached;
+            }
+            String text = extract(open(upload, stats), stats);
+            cache.put(ResultCache.Level.DOCUMENT, upload.getDigest(), text);
+            return text;
+        }
+    }
 
-        try (OrtEnvironment env = OrtEnvironment.getEnvironment();
-                OrtSession session = env.createSession(MODEL_PATH, new OrtSession.SessionOptions())) {
+    /**
+     * Extracts the text of every page. Pages with a usable embedded text layer
+     * are returned as-is; the rest are OCR'd. Throws
+     * {@link OcrQueueFullException} before any OCR work when the shared OCR
+     * scheduler is saturated.
+     */
+    public String extract(PDDocument document) throws IOException {
+        return extract(pdfSource(document), new ExtractionStats());
+    }
 
-            List<Callable<PageResult>> tasks = new ArrayList<>();
+    private String extract(PageSource source, ExtractionStats stats) throws IOException {
+        StringBuilder extractedText = new StringBuilder();
 
-            for (int page = 0; page < document.getNumberOfPages(); page++) {
-                final int pageIndex = page;
-                tasks.add(() -> processPage(document, pageIndex, session, env));
-            }
+        try (Extraction extraction = prepare(source, null, new BitSet(), stats)) {
+            extraction.run(true, result -> {
+                extractedText.append("Page ").append(result.pageIndex + 1).append(" [").append(result.type)
+                        .append("]:\n");
+                extractedText.append(result.text).append("\n\n");
+            });
+        } catch (OcrQueueFullException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error running OCR pipeline", e);
+        }
 
-            try {
-                List<Future<PageResult>> futures = executor.invokeAll(tasks);
-                List<PageResult> results = new ArrayList<>();
-                for (Future<PageResult> future : futures) {
-                    results.add(future.get());
-                }
+        return extractedText.toString();
+    }
 
-                // Sort by page index to maintain order
-                Collections.sort(results, (r1, r2) -> Integer.compare(r1.pageIndex, r2.pageIndex));
+    /**
+     * Spools and opens an upload and admits it to the OCR scheduler without
+     * running any OCR yet, so that a full queue is reported before a streaming
+     * response has started. The page-level result cache still applies; the
+     * document-level cache does not, since it only holds the joined text.
+     */
+    public Extraction prepare(InputStream in) throws IOException {
+        ExtractionStats stats = new ExtractionStats();
+        SpooledUpload upload = metrics.time(ExtractionStats.Stage.LOAD, stats,
+                () -> SpooledUpload.spool(in, spoolDir));
+        PageSource source;
+        try {
+            metrics.document(upload.getSize(), stats);
+            source = open(upload, stats);
+        } catch (IOException | RuntimeException e) {
+            upload.close();
+            throw e;
+        }
+        return prepare(source, upload, new BitSet(), stats);
+    }
 
-                for (PageResult result : results) {
-                    extractedText.append("Page ").append(result.pageIndex + 1).append(" [").append(result.type)
-                            .append("]:\n");
-                    extractedText.append(result.text).append("\n\n");
-                }
+    /** Takes ownership of {@code document}: it is closed with the returned extraction, or on failure. */
+    public Extraction prepare(PDDocument document) throws IOException {
+        return prepare(pdfSource(document), null, new BitSet(), new ExtractionStats());
+    }
 
-            } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
-                throw new IOException("Error during parallel PDF extraction", e);
-            } finally {
-                executor.shutdown();
-                try {
-                    if (!executor.awaitTermination(300, TimeUnit.SECONDS)) {
-                        executor.shutdownNow();
-                    }
-                } catch (InterruptedException ex) {
-                    executor.shutdownNow();
-                    Thread.currentThread().interrupt();
-                }
-            }
+    /**
+     * Prepares a document that is already on disk, such as a job's upload,
+     * skipping the pages set in {@code done}. The file itself is left in place.
+     */
+    public Extraction prepare(File file, BitSet done) throws IOException {
+        ExtractionStats stats = new ExtractionStats();
+        metrics.document(file.length(), stats);
+        DocumentFormat format = requireSupported(DocumentFormat.detect(file.toPath()));
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                .setTempDir(spoolDir.toFile());
+        PageSource source = metrics.time(ExtractionStats.Stage.LOAD, stats, () -> format == DocumentFormat.PDF
+                ? pdfSource(PDDocument.load(file, memory))
+                : new ImageFramePageSource(file, renderTargetPixels));
+        return prepare(source, null, done, stats);
+    }
 
-        } catch (Exception e) {
-            throw new IOException("Error running OCR pipeline", e);
-        } finally {
-            document.close();
+    private PageSource open(SpooledUpload upload, ExtractionStats stats) throws IOException {
+        DocumentFormat format = requireSupported(upload.getFormat());
+        return metrics.time(ExtractionStats.Stage.LOAD, stats, () -> format == DocumentFormat.PDF
+                ? pdfSource(upload.load(maxMainMemoryBytes))
+                : new ImageFramePageSource(upload.getFile().toFile(), renderTargetPixels));
+    }
+
+    private static DocumentFormat requireSupported(DocumentFormat format) throws IOException {
+        if (format == null) {
+            throw new IOException("Unsupported document format, expected a PDF, TIFF, PNG or JPEG file");
         }
+        return format;
+    }
 
-        return extractedText.toString();
+    private PdfPageSource pdfSource(PDDocument document) {
+        return new PdfPageSource(document, renderTargetPixels, renderMinDpi, renderMaxDpi);
     }
 
-    private static String detectTextType(OrtSession session, OrtEnvironment env, BufferedImage image) {
+    private Extraction prepare(PageSource source, SpooledUpload upload, BitSet done, ExtractionStats stats)
+            throws IOException {
         try {
-            // 1. Preprocess: Resize to 600x1000 (Width x Height) as expected by the model
-            // Error indicated Expected: 1000 (Index 2/Height), Expected: 600 (Index
-            // 3/Width)
-            BufferedImage resized = resize(image, 600, 1000);
-
-            // 2. Convert to Tensor (NCHW format: [1, 3, 1000, 600])
-            // Assuming model expects normalized floats 0.0-1.0 or similar.
-            // Adjust normalization (mean/std) based on your specific training.
-            float[][][][] inputData = imageToTensorData(resized);
-
-            try (OnnxTensor inputTensor = OnnxTensor.createTensor(env, inputData)) {
-                // 3. Run Inference
-                // We assume the first input node is the image input
-                String inputName = session.getInputNames().iterator().next();
-                OrtSession.Result result = session.run(Collections.singletonMap(inputName, inputTensor));
-
-                // 4. Process Output
-                // Assuming output is [1, 2] (logits or probabilities)
-                // Index 0: Printed, Index 1: Handwritten (Adjust based on model)
-                float[][] output = (float[][]) result.get(0).getValue();
-
-                float printedScore = output[0][0];
-                float handwrittenScore = output[0][1];
-
-                return handwrittenScore > printedScore ? "Handwritten" : "Printed";
-            }
-        } catch (Exception e) {
-            System.err.println("Classification failed, defaulting to Printed: " + e.getMessage());
-            e.printStackTrace();
-            return "Printed";
-        }
-    }
-
-    private static BufferedImage resize(BufferedImage img, int newW, int newH) {
-        Image tmp = img.getScaledInstance(newW, newH, Image.SCALE_SMOOTH);
-        BufferedImage dimg = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = dimg.createGraphics();
-        g2d.drawImage(tmp, 0, 0, null);
-        g2d.dispose();
-        return dimg;
-    }
-
-    private static float[][][][] imageToTensorData(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        float[][][][] data = new float[1][3][height][width];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                // Extract channels
-                float r = ((rgb >> 16) & 0xFF) / 255.0f;
-                float g = ((rgb >> 8) & 0xFF) / 255.0f;
-                float b = (rgb & 0xFF) / 255.0f;
-
-                // NCHW layout
-                data[0][0][y][x] = r; // Red
-                data[0][1][y][x] = g; // Green
-                data[0][2][y][x] = b; // Blue
+            // Only PDFs can carry a text layer; every frame of an image needs OCR
+            String[] textLayer = source instanceof PdfPageSource pdf
+                    ? metrics.time(ExtractionStats.Stage.TEXT_LAYER, stats,
+                            () -> textLayerExtractor.extract(pdf.getDocument()))
+                    : new String[source.getPageCount()];
+            int[] imagePages = IntStream.range(0, textLayer.length)
+                    .filter(i -> textLayer[i] == null && !done.get(i))
+                    .toArray();
+            long textLayerPages = Arrays.stream(textLayer).filter(Objects::nonNull).count();
+            System.out.println(textLayerPages + " of " + textLayer.length + " pages have a usable text layer, "
+                    + imagePages.length + " need OCR"
+                    + (done.isEmpty() ? "" : ", " + done.cardinality() + " were already done"));
+            // Pages finished by an earlier run are not delivered again
+            done.stream().filter(i -> i < textLayer.length).forEach(i -> textLayer[i] = null);
+            OcrScheduler.Lane lane = imagePages.length > 0 ? scheduler.open(imagePages.length) : null;
+            return new Extraction(source, upload, textLayer, imagePages, lane, stats);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            if (upload != null) {
+                upload.close();
             }
+            throw e;
         }
-        return data;
     }
 
-    private static String runGeminiVisionOCR(File imageFile) throws IOException {
-        // TODO: Configure these via environment variables or properties
-        String projectId = System.getenv("GOOGLE_CLOUD_PROJECT");
-        if (projectId == null) {
-            // Fallback for local development if env var not set
-            // User must ensure they have 'gcloud auth application-default login' set up
-            projectId = "your-project-id";
+    /**
+     * An admitted document. {@link #run} delivers every page exactly once,
+     * either in page order or as pages complete; text-layer pages are
+     * delivered first, as they need no OCR. The listener is only called on
+     * the thread running {@link #run}, never on a shared OCR worker, so a
+     * slow client holds up its own document and nothing else.
+     */
+    public class Extraction implements AutoCloseable {
+        private final PageSource source;
+        private final SpooledUpload upload;
+        private final String[] textLayer;
+        private final int[] imagePages;
+        private final OcrScheduler.Lane lane;
+        private final ExtractionStats stats;
+
+        private Extraction(PageSource source, SpooledUpload upload, String[] textLayer, int[] imagePages,
+                OcrScheduler.Lane lane, ExtractionStats stats) {
+            this.source = source;
+            this.upload = upload;
+            this.textLayer = textLayer;
+            this.imagePages = imagePages;
+            this.lane = lane;
+            this.stats = stats;
         }
-        String location = "us-central1"; // "asia-south1"; //
-        String modelName = "gemini-2.5-flash-lite";
 
-        try (VertexAI vertexAI = new VertexAI(projectId, location)) {
-            GenerativeModel model = new GenerativeModel(modelName, vertexAI);
+        public int getPageCount() {
+            return textLayer.length;
+        }
 
-            byte[] imageBytes = java.nio.file.Files.readAllBytes(imageFile.toPath());
+        /** Pages, bytes and stage times so far; complete once {@link #run} has returned. */
+        public ExtractionStats getStats() {
+            return stats;
+        }
 
-            var content = ContentMaker.fromMultiModalData(
-                    "Transcribe the handwritten text in this image exactly as it appears. Do not add any markdown formatting or commentary.",
-                    PartMaker.fromMimeTypeAndData("image/png", imageBytes));
+        public void run(boolean pageOrder, PagePipeline.PageListener listener) throws IOException {
+            PagePipeline.PageListener counted = result -> {
+                metrics.page(result.getType(), stats);
+                listener.onPage(result);
+            };
+            PagePipeline.PageListener sink = pageOrder
+                    ? new OrderedPageListener(textLayer.length, counted)
+                    : counted;
+            for (int page = 0; page < textLayer.length; page++) {
+                if (textLayer[page] != null) {
+                    sink.onPage(new PageResult(page, TextLayerExtractor.TEXT_LAYER, textLayer[page]));
+                    textLayer[page] = null;
+                }
+            }
+            if (lane == null) {
+                return;
+            }
+            // Only the render stage touches the source, so no locking is needed.
+            // The render queue holds one full classifier batch. A single request
+            // may keep every OCR worker busy; the lane makes workers alternate
+            // with other requests page by page.
+            PagePipeline pipeline = new PagePipeline(classifier.getBatchSize(), 1, classifier.getBatchSize(),
+                    scheduler.getWorkers(), scheduler.stageExecutor(), lane);
+            // PDF pages are rendered for the classifier at its input size, so
+            // only the OCR raster is rendered at full (adaptive) resolution
+            PagePipeline.PageRenderer preview = source.classificationRenderer(classifier.getInputWidth(),
+                    classifier.getInputHeight());
+            pipeline.stream(
+                    imagePages,
+                    pageIndex -> metrics.time(ExtractionStats.Stage.RENDER, stats,
+                            () -> source.renderForOcr(pageIndex)),
+                    preview == null ? null : pageIndex -> metrics.time(ExtractionStats.Stage.PREVIEW, stats,
+                            () -> preview.render(pageIndex)),
+                    timed(classifier, stats),
+                    (pageIndex, image, type) -> recognizeCached(pageIndex, image, type, stats),
+                    pageOrder,
+                    sink);
+        }
 
-            GenerateContentResponse response = model.generateContent(content);
-            return ResponseHandler.getText(response);
-        } catch (Exception e) {
-            throw new IOException("Gemini API call failed", e);
+        @Override
+        public void close() throws IOException {
+            if (lane != null) {
+                lane.close();
+            }
+            try {
+                source.close();
+            } finally {
+                if (upload != null) {
+                    upload.close();
+                }
+            }
         }
     }
 
-    private static PageResult processPage(PDDocument document, int pageIndex, OrtSession session, OrtEnvironment env)
+    /** Records each classifier batch as one {@code classify} stage call. */
+    private PagePipeline.PageClassifier timed(PagePipeline.PageClassifier classifier, ExtractionStats stats) {
+        return new PagePipeline.PageClassifier() {
+            @Override
+            public String classify(BufferedImage image) {
+                return classifyBatch(List.of(image)).get(0);
+            }
+
+            @Override
+            public List<String> classifyBatch(List<BufferedImage> images) {
+                long start = System.nanoTime();
+                try {
+                    return classifier.classifyBatch(images);
+                } finally {
+                    metrics.record(ExtractionStats.Stage.CLASSIFY, stats, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /** Skips OCR for pages whose raster has been recognised before, e.g. in an earlier version of the file. */
+    private String recognizeCached(int pageIndex, BufferedImage image, String type, ExtractionStats stats)
             throws IOException {
-        // PDFRenderer is not thread-safe for the same document, so we need to
-        // synchronize access to it or create a new one per thread?
-        // Actually, PDFRenderer is NOT thread-safe for concurrency on same document.
-        // Safer to synchronize the rendering part or use a lock.
-        // However, standard PDFBox PDFRenderer usage might have issues if document is
-        // accessed concurrently.
-        // We will synchronize on document to be safe for rendering.
+        if (!cache.isEnabled()) {
+            return recognizePage(pageIndex, image, type, stats);
+        }
+        String key = ResultCache.pageKey(image, type);
+        String cached = cache.get(ResultCache.Level.PAGE, key, ResultCache.rasterBytes(image));
+        if (cached != null) {
+            stats.cachedPage();
+            return cached;
+        }
+        String text = recognizePage(pageIndex, image, type, stats);
+        cache.put(ResultCache.Level.PAGE, key, text);
+        return text;
+    }
 
-        BufferedImage image;
-        synchronized (document) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            image = renderer.renderImageWithDPI(pageIndex, 300);
+    private String recognizePage(int pageIndex, BufferedImage image, String type, ExtractionStats stats)
+            throws IOException {
+        if (tempFileFallback) {
+            return recognizeViaTempFile(pageIndex, image, type, stats);
+        }
+        if (regionOcr.isEnabled()) {
+            String text = regionOcr.recognize(pageIndex, image, stats);
+            if (text != null) {
+                return text;
+            }
+        }
+        if (!HandwritingClassifier.HANDWRITTEN.equals(type)) {
+            // Printed pages go straight from the raster to a warm pooled engine
+            return metrics.time(ExtractionStats.Stage.TESSERACT, stats, () -> tesseractPool.recognize(image));
         }
 
-        File tempImage = new File("page_" + pageIndex + "_" + Thread.currentThread().getId() + ".png");
-        ImageIO.write(image, "png", tempImage);
+        ByteString png = metrics.time(ExtractionStats.Stage.ENCODE, stats, () -> encoder.encodePng(image));
+        metrics.visionBytes(png.size(), stats);
+        return metrics.time(ExtractionStats.Stage.VISION, stats, () -> vision.transcribe(stats, pageIndex, png));
+    }
 
+    /**
+     * Previous hand-off through a PNG on disk, kept behind
+     * {@code docloader.ocr.temp-file-fallback}. Uses unique temp files so
+     * concurrent requests cannot collide.
+     */
+    private String recognizeViaTempFile(int pageIndex, BufferedImage image, String type, ExtractionStats stats)
+            throws IOException {
+        Path tempImage = Files.createTempFile(tempDir, "page_" + pageIndex + "_", ".png");
         try {
-            // Detect handwriting or printed
-            String type = detectTextType(session, env, image);
-            System.out.println("Page " + (pageIndex + 1) + " classified as: " + type);
-
-            String text;
-            if ("Handwritten".equals(type)) {
-                text = runGeminiVisionOCR(tempImage);
+            long start = System.nanoTime();
+            ImageIO.write(image, "png", tempImage.toFile());
+
+            boolean handwritten = HandwritingClassifier.HANDWRITTEN.equals(type);
+            BufferedImage reloaded = null;
+            byte[] imageBytes = null;
+            if (handwritten) {
+                imageBytes = Files.readAllBytes(tempImage);
             } else {
-                // Tesseract instance might need to be thread safe. Tesseract class is generally
-                // thread safe IF different instances are used or if underlying C API handles
-                // it.
-                // To be safe we should probably create Tesseract instance per thread or
-                // synchronize.
-                // But the passed 'tesseract' object is shared.
-                // Let's create a local instance or synchronize.
-                // Best practice with Tess4J: create new instance or pool them.
-                // We'll create a new lightweight instance here reusing datapath
-                Tesseract localTesseract = new Tesseract();
-                localTesseract.setDatapath(TESSDATA_PATH);
-                localTesseract.setLanguage("eng");
-                text = localTesseract.doOCR(tempImage);
+                reloaded = ImageIO.read(tempImage.toFile());
             }
-            return new PageResult(pageIndex, type, text);
-        } catch (Exception e) {
-            throw new IOException("Failed to process page " + pageIndex, e);
-        } finally {
-            if (tempImage.exists()) {
-                tempImage.delete();
-            }
-        }
-    }
-
-    private static class PageResult {
-        int pageIndex;
-        String type;
-        String text;
+            ioTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-        public PageResult(int pageIndex, String type, String text) {
-            this.pageIndex = pageIndex;
-            this.type = type;
-            this.text = text;
+            if (!handwritten) {
+                BufferedImage page = reloaded;
+                return metrics.time(ExtractionStats.Stage.TESSERACT, stats, () -> tesseractPool.recognize(page));
+            }
+            ByteString png = UnsafeByteOperations.unsafeWrap(imageBytes);
+            metrics.visionBytes(png.size(), stats);
+            return metrics.time(ExtractionStats.Stage.VISION, stats, () -> vision.transcribe(stats, pageIndex, png));
+        } finally {
+            Files.deleteIfExists(tempImage);
         }
     }
 }
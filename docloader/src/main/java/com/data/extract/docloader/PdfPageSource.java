@@ -0,0 +1,42 @@
+package com.data.extract.docloader;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/** Pages of a PDF, rendered by a {@link PageRasterizer}. Closing the source closes the document. */
+class PdfPageSource implements PageSource {
+
+    private final PDDocument document;
+    private final PageRasterizer rasterizer;
+
+    PdfPageSource(PDDocument document, long targetPixels, float minDpi, float maxDpi) {
+        this.document = document;
+        this.rasterizer = new PageRasterizer(document, targetPixels, minDpi, maxDpi);
+    }
+
+    PDDocument getDocument() {
+        return document;
+    }
+
+    @Override
+    public int getPageCount() {
+        return document.getNumberOfPages();
+    }
+
+    @Override
+    public BufferedImage renderForOcr(int pageIndex) throws IOException {
+        return rasterizer.renderForOcr(pageIndex);
+    }
+
+    @Override
+    public PagePipeline.PageRenderer classificationRenderer(int width, int height) {
+        return pageIndex -> rasterizer.renderAtSize(pageIndex, width, height);
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+}
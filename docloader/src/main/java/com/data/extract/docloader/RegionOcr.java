@@ -0,0 +1,149 @@
+package com.data.extract.docloader;
+
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Region-level OCR for a single page.
+ *
+ * {@link LayoutAnalyzer} splits the page into regions, and each region is
+ * classified by the page classifier as it would look alone on an otherwise
+ * blank page. Printed regions are recognised by Tesseract and only the
+ * handwritten crops go to Gemini, so a printed form with a handwritten
+ * signature no longer sends the whole page to the vision model, and a
+ * handwritten note on a printed page is no longer lost to Tesseract. The
+ * region texts are joined in reading order.
+ *
+ * Pages that split into a single region, or into more than
+ * {@code docloader.regions.max-regions} (dense tables, noise), are left to
+ * the page-level path.
+ */
+@Component
+public class RegionOcr {
+
+    private final boolean enabled;
+    private final int maxRegions;
+    private final LayoutAnalyzer layout;
+    private final PageTypeClassifier classifier;
+    private final TesseractEnginePool tesseractPool;
+    private final GeminiVisionClient vision;
+    private final ExtractionMetrics metrics;
+    private final PageImageEncoder encoder = new PageImageEncoder();
+
+    private final Counter printedRegions;
+    private final Counter handwrittenRegions;
+    private final DistributionSummary visionPayload;
+    private final DistributionSummary visionPayloadSaved;
+
+    public RegionOcr(@Value("${docloader.regions.enabled:true}") boolean enabled,
+            @Value("${docloader.regions.max-regions:24}") int maxRegions,
+            @Value("${docloader.regions.block-gap:0.02}") double blockGap,
+            @Value("${docloader.regions.column-gap:0.06}") double columnGap,
+            @Value("${docloader.regions.min-size:0.01}") double minSize,
+            PageTypeClassifier classifier, TesseractEnginePool tesseractPool, GeminiVisionClient vision,
+            ExtractionMetrics metrics, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.maxRegions = maxRegions;
+        this.layout = new LayoutAnalyzer(blockGap, columnGap, minSize);
+        this.classifier = classifier;
+        this.tesseractPool = tesseractPool;
+        this.vision = vision;
+        this.metrics = metrics;
+
+        this.printedRegions = Counter.builder("docloader.regions").tag("type", HandwritingClassifier.PRINTED)
+                .description("Page regions recognised separately").register(registry);
+        this.handwrittenRegions = Counter.builder("docloader.regions").tag("type", HandwritingClassifier.HANDWRITTEN)
+                .description("Page regions recognised separately").register(registry);
+        this.visionPayload = DistributionSummary.builder("docloader.regions.vision.payload").baseUnit("pixels")
+                .description("Pixels sent to vision OCR per page when only handwritten regions are sent")
+                .register(registry);
+        this.visionPayloadSaved = DistributionSummary.builder("docloader.regions.vision.payload.saved")
+                .baseUnit("pixels")
+                .description("Pixels per page not sent to vision OCR compared with sending the whole page")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Recognises the page region by region, or returns {@code null} when the
+     * layout gives no reason to, so the caller falls back to whole-page OCR.
+     */
+    public String recognize(int pageIndex, BufferedImage page, ExtractionStats stats) throws IOException {
+        List<Rectangle> regions = metrics.time(ExtractionStats.Stage.LAYOUT, stats, () -> layout.regions(page));
+        if (regions.size() < 2 || regions.size() > maxRegions) {
+            return null;
+        }
+        List<String> types = metrics.time(ExtractionStats.Stage.CLASSIFY, stats,
+                () -> classifier.classifyBatch(isolated(page, regions)));
+
+        List<String> texts = new ArrayList<>(regions.size());
+        long handwrittenPixels = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            Rectangle region = regions.get(i);
+            BufferedImage crop = page.getSubimage(region.x, region.y, region.width, region.height);
+            if (HandwritingClassifier.HANDWRITTEN.equals(types.get(i))) {
+                handwrittenRegions.increment();
+                handwrittenPixels += (long) region.width * region.height;
+                ByteString png = metrics.time(ExtractionStats.Stage.ENCODE, stats, () -> encoder.encodePng(crop));
+                metrics.visionBytes(png.size(), stats);
+                texts.add(metrics.time(ExtractionStats.Stage.VISION, stats,
+                        () -> vision.transcribe(stats, pageIndex, png)));
+            } else {
+                printedRegions.increment();
+                texts.add(metrics.time(ExtractionStats.Stage.TESSERACT, stats, () -> tesseractPool.recognize(crop)));
+            }
+        }
+        if (handwrittenPixels > 0) {
+            long pagePixels = (long) page.getWidth() * page.getHeight();
+            visionPayload.record(handwrittenPixels);
+            visionPayloadSaved.record(pagePixels - handwrittenPixels);
+        }
+        return String.join("\n", texts.stream().map(String::strip).filter(text -> !text.isEmpty()).toList());
+    }
+
+    /**
+     * Classifier inputs, one per region: the page scaled to the model input
+     * once, then each region copied onto its own blank page at the same spot.
+     */
+    private List<BufferedImage> isolated(BufferedImage page, List<Rectangle> regions) {
+        int width = classifier.getInputWidth();
+        int height = classifier.getInputHeight();
+        BufferedImage small = ImageResampler.resize(page, width, height);
+        double sx = (double) width / page.getWidth();
+        double sy = (double) height / page.getHeight();
+
+        List<BufferedImage> inputs = new ArrayList<>(regions.size());
+        for (Rectangle region : regions) {
+            int x0 = (int) Math.floor(region.x * sx);
+            int y0 = (int) Math.floor(region.y * sy);
+            int x1 = Math.min(width, (int) Math.ceil((region.x + region.width) * sx));
+            int y1 = Math.min(height, (int) Math.ceil((region.y + region.height) * sy));
+            BufferedImage input = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = input.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.drawImage(small, x0, y0, x1, y1, x0, y0, x1, y1, null);
+            } finally {
+                g.dispose();
+            }
+            inputs.add(input);
+        }
+        return inputs;
+    }
+}
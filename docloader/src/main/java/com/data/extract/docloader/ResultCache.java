@@ -0,0 +1,259 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level cache of extraction results keyed by content hash.
+ *
+ * The document level maps the SHA-256 of an uploaded PDF to its complete
+ * extracted text, so a re-upload of the same file does no OCR at all. The
+ * page level maps the SHA-256 of a rendered page raster (plus its page type)
+ * to the recognised text, so a new version of a document only sends the
+ * pages that actually changed to Tesseract or Gemini.
+ *
+ * Each level keeps a bounded LRU in memory. When
+ * {@code docloader.cache.disk.dir} is set, entries are also written to disk,
+ * survive restarts and are evicted oldest-first once the store grows past
+ * {@code docloader.cache.disk.max-bytes}.
+ */
+@Component
+public class ResultCache {
+
+    public enum Level {
+        DOCUMENT, PAGE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final int DIGEST_CHUNK_PIXELS = 64 * 1024;
+
+    private final boolean enabled;
+    private final Map<Level, Lru> memory = new EnumMap<>(Level.class);
+    private final DiskResultStore disk;
+    private final Map<Level, Counter> hits = new EnumMap<>(Level.class);
+    private final Map<Level, Counter> misses = new EnumMap<>(Level.class);
+    private final Map<Level, AtomicLong> bytesSaved = new EnumMap<>(Level.class);
+
+    public ResultCache(@Value("${docloader.cache.enabled:true}") boolean enabled,
+            @Value("${docloader.cache.memory.document-entries:256}") int documentEntries,
+            @Value("${docloader.cache.memory.page-entries:4096}") int pageEntries,
+            @Value("${docloader.cache.disk.dir:}") String diskDir,
+            @Value("${docloader.cache.disk.max-bytes:536870912}") long diskMaxBytes,
+            MeterRegistry registry) throws IOException {
+        this.enabled = enabled;
+        memory.put(Level.DOCUMENT, new Lru(documentEntries));
+        memory.put(Level.PAGE, new Lru(pageEntries));
+        this.disk = enabled && !diskDir.isBlank() ? new DiskResultStore(Path.of(diskDir), diskMaxBytes) : null;
+
+        for (Level level : Level.values()) {
+            hits.put(level, Counter.builder("docloader.cache.lookups").tag("level", level.tag()).tag("result", "hit")
+                    .description("Result cache lookups").register(registry));
+            misses.put(level, Counter.builder("docloader.cache.lookups").tag("level", level.tag())
+                    .tag("result", "miss").description("Result cache lookups").register(registry));
+            Gauge.builder("docloader.cache.hit.ratio", () -> hitRatio(level)).tag("level", level.tag())
+                    .description("Share of lookups answered from the cache").register(registry);
+            AtomicLong saved = new AtomicLong();
+            bytesSaved.put(level, saved);
+            FunctionCounter.builder("docloader.cache.bytes.saved", saved, AtomicLong::get).tag("level", level.tag())
+                    .description("Input bytes (uploads or page rasters) that skipped OCR thanks to a cache hit")
+                    .baseUnit("bytes").register(registry);
+        }
+        if (disk != null) {
+            Gauge.builder("docloader.cache.disk.size", disk, DiskResultStore::size).baseUnit("bytes")
+                    .description("Size of the on-disk result store").register(registry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached result, or {@code null} on a miss.
+     *
+     * @param inputBytes size of the input the result was computed from, counted as saved on a hit
+     */
+    public String get(Level level, String key, long inputBytes) {
+        if (!enabled) {
+            return null;
+        }
+        Lru lru = memory.get(level);
+        String value;
+        synchronized (lru) {
+            value = lru.get(key);
+        }
+        if (value == null && disk != null) {
+            value = disk.get(level, key);
+            if (value != null) {
+                synchronized (lru) {
+                    lru.put(key, value);
+                }
+            }
+        }
+        if (value == null) {
+            misses.get(level).increment();
+            return null;
+        }
+        hits.get(level).increment();
+        bytesSaved.get(level).addAndGet(inputBytes);
+        return value;
+    }
+
+    public void put(Level level, String key, String value) {
+        if (!enabled) {
+            return;
+        }
+        Lru lru = memory.get(level);
+        synchronized (lru) {
+            lru.put(key, value);
+        }
+        if (disk != null) {
+            disk.put(level, key, value);
+        }
+    }
+
+    double hitRatio(Level level) {
+        double hit = hits.get(level).count();
+        double total = hit + misses.get(level).count();
+        return total == 0 ? 0 : hit / total;
+    }
+
+    /** Wraps an upload so its digest and size are known once it has been read. */
+    public static DigestingInputStream digesting(InputStream in) {
+        return new DigestingInputStream(in);
+    }
+
+    /**
+     * Key of a rendered page: SHA-256 of its pixels, dimensions and the page
+     * type, since printed and handwritten pages go to different engines.
+     */
+    public static String pageKey(BufferedImage image, String type) {
+        MessageDigest digest = sha256();
+        digest.update((image.getWidth() + "x" + image.getHeight() + ":" + type + ":")
+                .getBytes(StandardCharsets.UTF_8));
+        DataBuffer data = image.getRaster().getDataBuffer();
+        if (data instanceof DataBufferInt ints && ints.getNumBanks() == 1) {
+            int[] pixels = ints.getData();
+            ByteBuffer chunk = ByteBuffer.allocate(Math.min(pixels.length, DIGEST_CHUNK_PIXELS) * Integer.BYTES);
+            IntBuffer view = chunk.asIntBuffer();
+            for (int from = 0; from < pixels.length; from += DIGEST_CHUNK_PIXELS) {
+                int length = Math.min(DIGEST_CHUNK_PIXELS, pixels.length - from);
+                view.clear();
+                view.put(pixels, from, length);
+                digest.update(chunk.array(), 0, length * Integer.BYTES);
+            }
+        } else if (data instanceof DataBufferByte bytes && bytes.getNumBanks() == 1) {
+            digest.update(bytes.getData());
+        } else {
+            int[] row = new int[image.getWidth()];
+            ByteBuffer rowBytes = ByteBuffer.allocate(row.length * Integer.BYTES);
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, row.length, 1, row, 0, row.length);
+                rowBytes.clear();
+                rowBytes.asIntBuffer().put(row);
+                digest.update(rowBytes.array());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Approximate size of a rendered raster, used for the bytes-saved metric. */
+    public static long rasterBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** Access-ordered map that drops the least recently used entry beyond its capacity. */
+    private static class Lru extends LinkedHashMap<String, String> {
+        private final int capacity;
+
+        Lru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /** Input stream that hashes and counts everything read through it. */
+    public static class DigestingInputStream extends FilterInputStream {
+        private final MessageDigest digest = sha256();
+        private long count;
+
+        private DigestingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /** Reads whatever is left, then returns the hex digest of the whole stream. */
+        public String finish() throws IOException {
+            transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        public long bytesRead() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.data.extract.docloader;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An uploaded document copied to a temp file, hashed on the way for the
+ * result cache. Loading a PDF from the file lets PDFBox read the source on demand
+ * instead of buffering the whole upload on the heap, and
+ * {@link MemoryUsageSetting#setupMixed} caps the heap PDFBox uses for
+ * decoded streams per document, spilling the rest to scratch files next to
+ * the upload. The file is deleted on {@link #close}, which must come after
+ * the document has been closed.
+ */
+public class SpooledUpload implements Closeable {
+
+    private final Path file;
+    private final String digest;
+    private final long size;
+    private final DocumentFormat format;
+
+    private SpooledUpload(Path file, String digest, long size, DocumentFormat format) {
+        this.file = file;
+        this.digest = digest;
+        this.size = size;
+        this.format = format;
+    }
+
+    public static SpooledUpload spool(InputStream in, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "upload-", ".tmp");
+        try {
+            ResultCache.DigestingInputStream upload = ResultCache.digesting(in);
+            Files.copy(upload, file, StandardCopyOption.REPLACE_EXISTING);
+            return new SpooledUpload(file, upload.finish(), upload.bytesRead(), DocumentFormat.detect(file));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /** SHA-256 of the upload, hex encoded. */
+    public String getDigest() {
+        return digest;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /** Format detected from the content, or {@code null} if it is not one we accept. */
+    public DocumentFormat getFormat() {
+        return format;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public PDDocument load(long maxMainMemoryBytes) throws IOException {
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                .setTempDir(file.getParent().toFile());
+        return PDDocument.load(file.toFile(), memory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,43 @@
+package com.data.extract.docloader;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Threads for the streaming endpoints. Each open stream holds one thread until
+ * its last page is sent, so the pool has a thread for every request the
+ * {@link OcrScheduler} admits ({@code docloader.ocr.max-active-requests});
+ * on Boot's shared 8-thread task executor, the ninth stream would be admitted
+ * but get no page until an earlier stream finished. MVC async processing
+ * (the NDJSON {@code StreamingResponseBody}) runs on the same pool as the SSE
+ * emitters.
+ */
+@Configuration
+public class StreamingConfiguration implements WebMvcConfigurer {
+
+    private final int maxActiveRequests;
+
+    public StreamingConfiguration(@Value("${docloader.ocr.max-active-requests:64}") int maxActiveRequests) {
+        this.maxActiveRequests = maxActiveRequests;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxActiveRequests);
+        executor.setMaxPoolSize(maxActiveRequests);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("docloader-stream-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamExecutor());
+    }
+}
@@ -0,0 +1,74 @@
+package com.data.extract.docloader;
+
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * A single initialised Tesseract engine.
+ *
+ * Unlike {@link net.sourceforge.tess4j.Tesseract}, which initialises and tears
+ * down the native API (and reloads traineddata) on every doOCR call, this keeps
+ * one TessBaseAPI handle alive across pages. An engine must only be used by one
+ * thread at a time; {@link TesseractEnginePool} takes care of that.
+ */
+class TesseractEngine implements AutoCloseable {
+
+    private final TessAPI api;
+    private final TessBaseAPI handle;
+
+    TesseractEngine(String datapath, String languages) {
+        this.api = TessAPI.INSTANCE;
+        this.handle = api.TessBaseAPICreate();
+        if (api.TessBaseAPIInit3(handle, datapath, languages) != 0) {
+            api.TessBaseAPIDelete(handle);
+            throw new IllegalStateException(
+                    "Could not initialise Tesseract with languages '" + languages + "' from " + datapath);
+        }
+    }
+
+    String recognize(BufferedImage image) {
+        api.TessBaseAPISetImage(handle, grayPixels(image), image.getWidth(), image.getHeight(), 1, image.getWidth());
+        Pointer text = api.TessBaseAPIGetUTF8Text(handle);
+        if (text == null) {
+            api.TessBaseAPIClear(handle);
+            throw new IllegalStateException("Tesseract failed to recognise the page");
+        }
+        try {
+            return text.getString(0, "UTF-8");
+        } finally {
+            api.TessDeleteText(text);
+            api.TessBaseAPIClear(handle);
+        }
+    }
+
+    /**
+     * The image as tightly packed 8-bit gray rows, {@code width} bytes each.
+     * Tesseract binarises internally, so that is all it needs. A gray image
+     * that owns its whole raster is passed as is; a gray sub-image (e.g. a
+     * region crop) shares its parent's buffer, so only its own pixels are copied.
+     */
+    static ByteBuffer grayPixels(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            return ImageIOHelper.convertImageData(ImageHelper.convertImageToGrayscale(image));
+        }
+        if (image.getRaster().getParent() == null) {
+            return ImageIOHelper.convertImageData(image);
+        }
+        byte[] rows = (byte[]) image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null);
+        ByteBuffer pixels = ByteBuffer.allocateDirect(rows.length);
+        pixels.put(rows).flip();
+        return pixels;
+    }
+
+    @Override
+    public void close() {
+        api.TessBaseAPIEnd(handle);
+        api.TessBaseAPIDelete(handle);
+    }
+}
@@ -0,0 +1,132 @@
+package com.data.extract.docloader;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size pool of warm {@link TesseractEngine}s for printed-page OCR.
+ *
+ * Engines are created at startup when warm-up is enabled, otherwise on first
+ * use. An engine that throws while recognising a page is closed and evicted;
+ * a fresh one is created the next time the pool runs short.
+ */
+@Component
+public class TesseractEnginePool {
+
+    private final String datapath;
+    private final String languages;
+    private final int size;
+    private final boolean warmUp;
+
+    private final LinkedBlockingQueue<TesseractEngine> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    public TesseractEnginePool(
+            @Value("${docloader.tesseract.datapath:C:\\Program Files\\Tesseract-OCR\\tessdata}") String datapath,
+            @Value("${docloader.tesseract.languages:eng}") String languages,
+            @Value("${docloader.tesseract.pool-size:${docloader.ocr.workers:0}}") int size,
+            @Value("${docloader.tesseract.warm-up:true}") boolean warmUp) {
+        this.datapath = datapath;
+        this.languages = languages;
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.warmUp = warmUp;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        if (!warmUp) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            for (TesseractEngine engine = tryCreate(); engine != null; engine = tryCreate()) {
+                idle.add(engine);
+            }
+            System.out.println("Warmed up " + size + " Tesseract engines (" + languages + ") in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Throwable t) {
+            // Missing native libraries or traineddata should not stop the service
+            // from starting; pages will fail individually instead.
+            System.err.println("Tesseract warm-up failed, engines will be created on demand: " + t);
+        }
+    }
+
+    public String recognize(BufferedImage image) throws IOException {
+        TesseractEngine engine = borrow();
+        boolean healthy = false;
+        try {
+            String text = engine.recognize(image);
+            healthy = true;
+            return text;
+        } catch (RuntimeException e) {
+            throw new IOException("Tesseract OCR failed", e);
+        } finally {
+            if (healthy) {
+                idle.add(engine);
+            } else {
+                evict(engine);
+            }
+        }
+    }
+
+    private TesseractEngine borrow() throws IOException {
+        try {
+            while (true) {
+                TesseractEngine engine = idle.poll();
+                if (engine == null) {
+                    engine = tryCreate();
+                }
+                if (engine == null) {
+                    // Poll with a timeout so capacity freed by an eviction is noticed
+                    engine = idle.poll(100, TimeUnit.MILLISECONDS);
+                }
+                if (engine != null) {
+                    return engine;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a Tesseract engine", e);
+        } catch (RuntimeException | LinkageError e) {
+            throw new IOException("Could not create Tesseract engine", e);
+        }
+    }
+
+    /** Creates an engine if the pool is below its size, otherwise returns null. */
+    private TesseractEngine tryCreate() {
+        if (created.incrementAndGet() > size) {
+            created.decrementAndGet();
+            return null;
+        }
+        try {
+            return new TesseractEngine(datapath, languages);
+        } catch (RuntimeException | LinkageError e) {
+            created.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void evict(TesseractEngine engine) {
+        created.decrementAndGet();
+        try {
+            engine.close();
+        } catch (Throwable t) {
+            System.err.println("Failed to close evicted Tesseract engine: " + t.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (TesseractEngine engine = idle.poll(); engine != null; engine = idle.poll()) {
+            engine.close();
+        }
+    }
+}
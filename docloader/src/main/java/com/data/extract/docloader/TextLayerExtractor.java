@@ -0,0 +1,62 @@
+package com.data.extract.docloader;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Pre-pass that reads the embedded text layer of each page with
+ * {@link PDFTextStripper}. Pages whose layer has at least
+ * {@code docloader.text-layer.min-chars} non-whitespace characters are taken
+ * as-is and never rendered, classified or OCR'd; only the remaining
+ * image-only pages go through the OCR pipeline.
+ */
+@Component
+public class TextLayerExtractor {
+
+    public static final String TEXT_LAYER = "TextLayer";
+
+    private final boolean enabled;
+    private final int minChars;
+
+    public TextLayerExtractor(@Value("${docloader.text-layer.enabled:true}") boolean enabled,
+            @Value("${docloader.text-layer.min-chars:50}") int minChars) {
+        this.enabled = enabled;
+        this.minChars = minChars;
+    }
+
+    /**
+     * Returns the text layer of every page, with {@code null} for pages that
+     * need OCR. Must run on the thread that owns the document.
+     */
+    public String[] extract(PDDocument document) throws IOException {
+        String[] texts = new String[document.getNumberOfPages()];
+        if (!enabled) {
+            return texts;
+        }
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+        for (int page = 0; page < texts.length; page++) {
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            String text = stripper.getText(document);
+            if (isUsable(text)) {
+                texts[page] = text;
+            }
+        }
+        return texts;
+    }
+
+    private boolean isUsable(String text) {
+        int visible = 0;
+        for (int i = 0; i < text.length() && visible < minChars; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                visible++;
+            }
+        }
+        return visible >= minChars;
+    }
+}
@@ -1,32 +1,168 @@
 package com.data.extract.docloader.controller;
 
+import com.data.extract.docloader.DocumentFormat;
+import com.data.extract.docloader.ExtractionStats;
+import com.data.extract.docloader.OcrQueueFullException;
+import com.data.extract.docloader.PageResult;
 import com.data.extract.docloader.PdfImageTextExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-
 @RestController
 @RequestMapping("/api/docs")
 public class DocController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    static final String UNSUPPORTED_FILE = "Please upload a valid PDF, TIFF, PNG or JPEG file.";
+
+    private final PdfImageTextExtractor extractor;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor streamExecutor;
+
+    public DocController(PdfImageTextExtractor extractor, ObjectMapper objectMapper,
+            @Qualifier("streamExecutor") AsyncTaskExecutor streamExecutor) {
+        this.extractor = extractor;
+        this.objectMapper = objectMapper;
+        this.streamExecutor = streamExecutor;
+    }
+
     @PostMapping(value = "/extract-text", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Map> extractTextFromPdf(@RequestParam("file") MultipartFile file) {
-        if (file.isEmpty() || !file.getOriginalFilename().endsWith(".pdf")) {
-            throw new RuntimeException("Please upload a valid PDF file.");
+        if (file.isEmpty() || DocumentFormat.fromFileName(file.getOriginalFilename()) == null) {
+            throw new RuntimeException(UNSUPPORTED_FILE);
         }
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            String text = PdfImageTextExtractor.extract(document);
-            Map<String, String> map = Map.of("extractedText", text);
+        try {
+            ExtractionStats stats = new ExtractionStats();
+            String text = extractor.extract(file.getInputStream(), stats);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("extractedText", text);
+            map.put("summary", stats.summary());
             return ResponseEntity.ok(map);
         } catch (IOException e) {
             e.printStackTrace();
-            throw new RuntimeException("Please upload a valid PDF file." + e.getMessage());
+            throw new RuntimeException(UNSUPPORTED_FILE + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams one JSON object per page as newline-delimited JSON, as soon as
+     * each page is ready. {@code order=page} (default) keeps page order;
+     * {@code order=completion} emits pages as they finish. The stream ends with
+     * a {@code {"summary": ...}} line, or with an {@code {"error": ...}} line
+     * if a page fails after the first one has been sent.
+     */
+    @PostMapping(value = "/extract-text/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamTextAsNdjson(@RequestParam("file") MultipartFile file,
+            @RequestParam(value = "order", defaultValue = "page") String order) {
+        boolean pageOrder = isPageOrder(order);
+        PdfImageTextExtractor.Extraction extraction = prepare(file);
+        StreamingResponseBody body = out -> {
+            try (extraction) {
+                extraction.run(pageOrder, result -> writeLine(out, pageJson(result)));
+                writeLine(out, Map.of("summary", extraction.getStats().summary()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                writeLine(out, Map.of("error", String.valueOf(e.getMessage())));
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Same as the NDJSON stream, as Server-Sent Events: one {@code page} event
+     * per page, then a {@code done} event carrying the request summary, or an
+     * {@code error} event on failure.
+     */
+    @PostMapping(value = "/extract-text/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTextAsEvents(@RequestParam("file") MultipartFile file,
+            @RequestParam(value = "order", defaultValue = "page") String order) {
+        boolean pageOrder = isPageOrder(order);
+        PdfImageTextExtractor.Extraction extraction = prepare(file);
+        // No timeout: large scans can take minutes
+        SseEmitter emitter = new SseEmitter(0L);
+        streamExecutor.execute(() -> {
+            try (extraction) {
+                extraction.run(pageOrder, result -> emitter.send(SseEmitter.event()
+                        .name("page")
+                        .id(String.valueOf(result.getPageIndex() + 1))
+                        .data(pageJson(result), MediaType.APPLICATION_JSON)));
+                emitter.send(SseEmitter.event().name("done")
+                        .data(Map.of("pages", extraction.getPageCount(), "summary", extraction.getStats().summary()),
+                                MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (Exception e) {
+                e.printStackTrace();
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("error", String.valueOf(e.getMessage())), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (Exception sendFailed) {
+                    // Client is gone
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        return emitter;
+    }
+
+    private PdfImageTextExtractor.Extraction prepare(MultipartFile file) {
+        if (file.isEmpty() || DocumentFormat.fromFileName(file.getOriginalFilename()) == null) {
+            throw new RuntimeException(UNSUPPORTED_FILE);
+        }
+        try {
+            return extractor.prepare(file.getInputStream());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(UNSUPPORTED_FILE + " " + e.getMessage());
         }
     }
+
+    private static boolean isPageOrder(String order) {
+        return switch (order) {
+            case "page" -> true;
+            case "completion" -> false;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "order must be 'page' or 'completion'");
+        };
+    }
+
+    private static Map<String, Object> pageJson(PageResult result) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("page", result.getPageIndex() + 1);
+        json.put("type", result.getType());
+        json.put("text", result.getText());
+        return json;
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        // Flush per page so the client sees it now rather than when the buffer fills
+        out.flush();
+    }
+
+    @ExceptionHandler(OcrQueueFullException.class)
+    public ResponseEntity<Map> onQueueFull(OcrQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
 }
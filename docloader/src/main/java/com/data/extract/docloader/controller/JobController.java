@@ -0,0 +1,79 @@
+package com.data.extract.docloader.controller;
+
+import com.data.extract.docloader.DocumentFormat;
+import com.data.extract.docloader.ExtractionJob;
+import com.data.extract.docloader.ExtractionJobRunner;
+import com.data.extract.docloader.JobStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Asynchronous extraction: submit a PDF or image file, then poll the job for progress and
+ * fetch page results as they become available.
+ */
+@RestController
+@RequestMapping("/api/docs/jobs")
+public class JobController {
+
+    private final ExtractionJobRunner runner;
+    private final JobStore store;
+
+    public JobController(ExtractionJobRunner runner, JobStore store) {
+        this.runner = runner;
+        this.store = store;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ExtractionJob> submit(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty() || DocumentFormat.fromFileName(file.getOriginalFilename()) == null) {
+            throw new RuntimeException(DocController.UNSUPPORTED_FILE);
+        }
+        try {
+            ExtractionJob job = runner.submit(file.getOriginalFilename(), file.getInputStream());
+            return ResponseEntity.accepted().location(URI.create("/api/docs/jobs/" + job.getId())).body(job);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Could not store the upload: " + e.getMessage());
+        }
+    }
+
+    /** State and progress ({@code pagesDone} of {@code totalPages}). */
+    @GetMapping("/{id}")
+    public ExtractionJob status(@PathVariable String id) throws IOException {
+        return find(id);
+    }
+
+    /**
+     * Page results stored so far, in page order. Available while the job is
+     * still running; {@code complete} tells whether more pages will follow.
+     */
+    @GetMapping("/{id}/pages")
+    public Map<String, Object> pages(@PathVariable String id) throws IOException {
+        ExtractionJob job = find(id);
+        List<Map<String, Object>> pages = store.pages(id);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("job", job);
+        body.put("complete", job.getState() == ExtractionJob.State.DONE);
+        body.put("pages", pages);
+        return body;
+    }
+
+    private ExtractionJob find(String id) throws IOException {
+        return store.find(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No job " + id));
+    }
+}
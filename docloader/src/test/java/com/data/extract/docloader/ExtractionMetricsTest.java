@@ -0,0 +1,46 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractionMetricsTest {
+
+    @Test
+    void recordsStagesInTheRegistryAndTheRequestSummary() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExtractionMetrics metrics = new ExtractionMetrics(registry);
+        ExtractionStats stats = new ExtractionStats();
+
+        assertEquals("text", metrics.time(ExtractionStats.Stage.TESSERACT, stats, () -> "text"));
+        assertThrows(IOException.class, () -> metrics.time(ExtractionStats.Stage.VISION, stats, () -> {
+            throw new IOException("quota");
+        }));
+        metrics.record(ExtractionStats.Stage.RENDER, stats, 5_000_000);
+        metrics.page(HandwritingClassifier.PRINTED, stats);
+        metrics.page(HandwritingClassifier.PRINTED, stats);
+        metrics.page(TextLayerExtractor.TEXT_LAYER, stats);
+        metrics.document(1234, stats);
+
+        assertEquals(1, registry.get("docloader.stage").tag("stage", "tesseract").timer().count());
+        assertEquals(1, registry.get("docloader.stage").tag("stage", "vision").timer().count());
+        assertEquals(2, registry.get("docloader.pages").tag("type", HandwritingClassifier.PRINTED).counter().count());
+
+        Map<String, Object> summary = stats.summary();
+        assertEquals(3L, summary.get("pages"));
+        assertEquals(Map.of(HandwritingClassifier.PRINTED, 2L, TextLayerExtractor.TEXT_LAYER, 1L),
+                summary.get("pagesByType"));
+        assertEquals(1234L, summary.get("bytes"));
+        Map<?, ?> stages = (Map<?, ?>) summary.get("stages");
+        assertEquals(Map.of("ms", 5.0, "calls", 1L), stages.get("render"));
+        assertTrue(stages.containsKey("vision"), "failed calls are timed too");
+        assertFalse(stages.containsKey("classify"), "stages that did not run are left out");
+    }
+}
@@ -0,0 +1,141 @@
+package com.data.extract.docloader;
+
+import com.data.extract.docloader.benchmark.GeminiStubServer;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiVisionClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private GeminiStubServer stub;
+    private GeminiVisionClient client;
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void packsConcurrentPagesIntoOneRequest() throws Exception {
+        start(4, 1000);
+
+        List<String> texts = transcribeConcurrently(4);
+
+        assertEquals(List.of("page 0", "page 1", "page 2", "page 3"), texts);
+        assertEquals(1, stub.requests());
+        assertEquals(3, registry.get("docloader.gemini.calls.saved").counter().count());
+        assertEquals(4, registry.get("docloader.gemini.page.latency").timer().count());
+    }
+
+    @Test
+    void retriesThrottledRequests() throws Exception {
+        start(1, 0);
+        stub.throttleNext(2);
+
+        assertEquals("page 7", client.transcribe(new Object(), 7, ByteString.copyFromUtf8("page 7")));
+        assertEquals(3, stub.requests());
+        assertEquals(2, registry.get("docloader.gemini.retries").counter().count());
+    }
+
+    @Test
+    void fallsBackToSinglePagesWhenReplyCannotBeSplit() throws Exception {
+        start(3, 1000);
+        stub.ignoreMarkers(true);
+
+        List<String> texts = transcribeConcurrently(3);
+
+        assertEquals(List.of("page 0", "page 1", "page 2"), texts);
+        assertEquals(4, stub.requests());
+        assertEquals(1, registry.get("docloader.gemini.packed.fallbacks").counter().count());
+    }
+
+    @Test
+    void neverPacksPagesOfDifferentRequestsTogether() throws Exception {
+        start(4, 1000);
+
+        List<String> texts = transcribeConcurrently(4, page -> page % 2 == 0 ? "even" : "odd");
+
+        assertEquals(List.of("page 0", "page 1", "page 2", "page 3"), texts);
+        assertEquals(2, stub.requests());
+        assertEquals(2, registry.get("docloader.gemini.calls.saved").counter().count());
+    }
+
+    @Test
+    void givesUpOnAPageOnceItsRetryBudgetIsSpent() throws Exception {
+        stub = new GeminiStubServer(2000);
+        client = new GeminiVisionClient("project", "us-central1", "gemini-test", stub.endpoint(), 100, 100,
+                1, 0, 4, 1, 10, 50, 200, registry);
+
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class,
+                () -> client.transcribe(new Object(), 0, ByteString.copyFromUtf8("page 0")));
+        assertTrue(e.getMessage().contains("within 200 ms"), e.getMessage());
+        assertTrue(System.nanoTime() - start < 1_500_000_000L);
+    }
+
+    @Test
+    void budgetsEveryAttemptOfThePackedCallAndTheFallback() {
+        // 4 attempts of 1000 ms plus backoffs of 100, 200 and 400 ms, for the packed call and 2 fallbacks
+        assertEquals(250 + 3 * 4700, GeminiVisionClient.pageTimeoutMillis(2, 250, 4, 1000, 100, 8000));
+        assertEquals(4000 + 100 + 200 + 400, GeminiVisionClient.pageTimeoutMillis(1, 0, 4, 1000, 100, 8000));
+    }
+
+    @Test
+    void splitsOnlyCompleteMarkedReplies() {
+        assertEquals(List.of("a", "b\nc"), GeminiVisionClient.split("=== PAGE 1 ===\na\n=== PAGE 2 ===\nb\nc\n", 2));
+        assertEquals(List.of("a", ""), GeminiVisionClient.split("=== PAGE 2 ===\n=== PAGE 1 ===\na", 2));
+        assertNull(GeminiVisionClient.split("=== PAGE 1 ===\na", 2));
+        assertNull(GeminiVisionClient.split("a\nb", 2));
+        assertNull(GeminiVisionClient.split("=== PAGE 1 ===\na\n=== PAGE 1 ===\nb", 2));
+    }
+
+    private void start(int pagesPerRequest, long batchWaitMillis) throws IOException {
+        stub = new GeminiStubServer(0);
+        client = new GeminiVisionClient("project", "us-central1", "gemini-test", stub.endpoint(), 100, 100,
+                pagesPerRequest, batchWaitMillis, 4, 4, 10, 50, 60_000, registry);
+    }
+
+    private List<String> transcribeConcurrently(int pages) throws Exception {
+        Object request = new Object();
+        return transcribeConcurrently(pages, page -> request);
+    }
+
+    private List<String> transcribeConcurrently(int pages, IntFunction<Object> requestOf) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(pages);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < pages; i++) {
+                int page = i;
+                futures.add(pool.submit(() -> client.transcribe(requestOf.apply(page), page,
+                        ByteString.copyFromUtf8("page " + page))));
+            }
+            List<String> texts = new ArrayList<>();
+            for (Future<String> future : futures) {
+                texts.add(future.get());
+            }
+            return texts;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
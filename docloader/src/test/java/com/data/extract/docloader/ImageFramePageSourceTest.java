@@ -0,0 +1,82 @@
+package com.data.extract.docloader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageFramePageSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodesTiffFramesOnDemand() throws IOException {
+        Path tiff = dir.resolve("scan.tif");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tiff.toFile())) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            for (int shade : new int[] { 0x00, 0x80, 0xFF }) {
+                writer.writeToSequence(new IIOImage(frame(400, 500, new Color(shade, shade, shade)), null, null),
+                        null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+
+        assertEquals(DocumentFormat.TIFF, DocumentFormat.detect(tiff));
+        try (ImageFramePageSource source = new ImageFramePageSource(tiff.toFile(), 1_000_000)) {
+            assertEquals(3, source.getPageCount());
+            assertNull(source.classificationRenderer(100, 100));
+            BufferedImage last = source.renderForOcr(2);
+            assertEquals(400, last.getWidth());
+            assertEquals(0xFFFFFF, last.getRGB(10, 10) & 0xFFFFFF);
+            assertEquals(0x808080, source.renderForOcr(1).getRGB(10, 10) & 0xFFFFFF);
+        }
+    }
+
+    @Test
+    void subsamplesFramesFarAboveThePixelBudget() throws IOException {
+        Path png = dir.resolve("photo.png");
+        ImageIO.write(frame(2000, 2400, Color.WHITE), "png", png.toFile());
+
+        assertEquals(DocumentFormat.PNG, DocumentFormat.detect(png));
+        try (ImageFramePageSource source = new ImageFramePageSource(png.toFile(), 1_200_000)) {
+            BufferedImage page = source.renderForOcr(0);
+            assertEquals(1000, page.getWidth());
+            assertEquals(1200, page.getHeight());
+        }
+    }
+
+    @Test
+    void detectsFormatsByContentAndName() throws IOException {
+        Path unknown = Files.write(dir.resolve("notes.pdf"), "plain text".getBytes());
+        assertNull(DocumentFormat.detect(unknown));
+        assertEquals(DocumentFormat.JPEG, DocumentFormat.fromFileName("IMG_0001.JPG"));
+        assertEquals(DocumentFormat.TIFF, DocumentFormat.fromFileName("fax.tiff"));
+        assertNull(DocumentFormat.fromFileName("notes.txt"));
+    }
+
+    private static BufferedImage frame(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,77 @@
+package com.data.extract.docloader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void keepsUploadAndPageResultsAcrossRestarts() throws IOException {
+        JobStore store = new JobStore(dir.toString(), objectMapper);
+        ExtractionJob job = store.create("scan.pdf", new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        job.setState(ExtractionJob.State.RUNNING);
+        job.setTotalPages(4);
+        store.save(job);
+        store.savePage(job.getId(), new PageResult(2, "Printed", "third"));
+        store.savePage(job.getId(), new PageResult(0, "TextLayer", "first"));
+
+        JobStore restarted = new JobStore(dir.toString(), objectMapper);
+        List<ExtractionJob> unfinished = restarted.unfinished();
+        assertEquals(1, unfinished.size());
+        ExtractionJob resumed = unfinished.get(0);
+        assertEquals(job.getId(), resumed.getId());
+        assertEquals(ExtractionJob.State.RUNNING, resumed.getState());
+        assertEquals(4, resumed.getTotalPages());
+        assertEquals(2, resumed.getPagesDone());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(restarted.uploadFile(job.getId())));
+
+        BitSet done = restarted.donePages(job.getId());
+        assertEquals("{0, 2}", done.toString());
+        List<Map<String, Object>> pages = restarted.pages(job.getId());
+        assertEquals(Map.of("page", 1, "type", "TextLayer", "text", "first"), pages.get(0));
+        assertEquals(Map.of("page", 3, "type", "Printed", "text", "third"), pages.get(1));
+    }
+
+    @Test
+    void storesImageUploadsUnderANeutralNameAndStillFindsLegacyPdfUploads() throws IOException {
+        JobStore store = new JobStore(dir.toString(), objectMapper);
+        ExtractionJob scan = store.create("scan.tiff", new ByteArrayInputStream(new byte[] { 'I', 'I', 42, 0 }));
+        assertEquals("upload", store.uploadFile(scan.getId()).getFileName().toString());
+        assertEquals(DocumentFormat.TIFF, DocumentFormat.detect(store.uploadFile(scan.getId())));
+
+        ExtractionJob legacy = store.create("old.pdf", new ByteArrayInputStream(new byte[0]));
+        Path legacyUpload = dir.resolve(legacy.getId()).resolve("upload.pdf");
+        Files.move(store.uploadFile(legacy.getId()), legacyUpload);
+        assertEquals(legacyUpload, store.uploadFile(legacy.getId()));
+    }
+
+    @Test
+    void finishedJobsAreNotResumedAndUnknownIdsAreNotFound() throws IOException {
+        JobStore store = new JobStore(dir.toString(), objectMapper);
+        ExtractionJob job = store.create("scan.pdf", new ByteArrayInputStream(new byte[0]));
+        job.setState(ExtractionJob.State.DONE);
+        store.save(job);
+
+        assertTrue(store.unfinished().isEmpty());
+        assertTrue(store.find("../" + job.getId()).isEmpty());
+        assertTrue(store.find("00000000-0000-0000-0000-000000000000").isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package com.data.extract.docloader;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LayoutAnalyzerTest {
+
+    private final LayoutAnalyzer layout = new LayoutAnalyzer(0.02, 0.06, 0.01);
+
+    @Test
+    void findsBlocksAndColumnsInReadingOrder() {
+        BufferedImage page = blankPage(1000, 1400);
+        // Header across the page, two columns below it, signature at the bottom right
+        lines(page, 100, 100, 800, 5);
+        lines(page, 100, 400, 350, 10);
+        lines(page, 550, 400, 350, 10);
+        lines(page, 600, 1200, 250, 2);
+        // A speck of scanner noise
+        ink(page, new Rectangle(20, 20, 3, 3));
+
+        List<Rectangle> regions = layout.regions(page);
+
+        assertEquals(4, regions.size(), regions.toString());
+        assertContains(regions.get(0), 100, 100);
+        assertContains(regions.get(1), 100, 400);
+        assertContains(regions.get(2), 550, 400);
+        assertContains(regions.get(3), 600, 1200);
+        assertTrue(regions.get(1).x + regions.get(1).width < regions.get(2).x, "columns overlap");
+    }
+
+    @Test
+    void keepsLinesOfOneParagraphTogether() {
+        BufferedImage page = blankPage(800, 1000);
+        lines(page, 50, 50, 700, 30);
+
+        assertEquals(List.of(new Rectangle(48, 48, 704, 30 * 16 - 6 + 4)), layout.regions(page));
+    }
+
+    @Test
+    void blankPageHasNoRegions() {
+        assertTrue(layout.regions(blankPage(400, 600)).isEmpty());
+    }
+
+    private static void assertContains(Rectangle region, int x, int y) {
+        assertTrue(region.contains(x, y), region + " does not contain " + x + "," + y);
+    }
+
+    private static BufferedImage blankPage(int width, int height) {
+        BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = page.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return page;
+    }
+
+    /** Text-like lines: 10 px of ink with 6 px of leading. */
+    private static void lines(BufferedImage page, int x, int y, int width, int count) {
+        for (int i = 0; i < count; i++) {
+            ink(page, new Rectangle(x, y + i * 16, width, 10));
+        }
+    }
+
+    private static void ink(BufferedImage page, Rectangle area) {
+        Graphics2D g = page.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fill(area);
+        g.dispose();
+    }
+}
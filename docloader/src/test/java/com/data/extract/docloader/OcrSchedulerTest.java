@@ -0,0 +1,80 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OcrSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OcrScheduler scheduler = new OcrScheduler(1, 10, 4, registry);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void alternatesBetweenRequests() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(6);
+
+        try (OcrScheduler.Lane large = scheduler.open(6); OcrScheduler.Lane small = scheduler.open(1)) {
+            // Hold the only worker so both lanes are queued before anything else runs
+            large.execute(() -> await(gate));
+            while (registry.get("docloader.ocr.workers.active").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < 5; i++) {
+                int page = i;
+                large.execute(() -> {
+                    order.add("large-" + page);
+                    done.countDown();
+                });
+            }
+            small.execute(() -> {
+                order.add("small-0");
+                done.countDown();
+            });
+            gate.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(List.of("large-0", "small-0", "large-1", "large-2", "large-3", "large-4"), order);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        try (OcrScheduler.Lane lane = scheduler.open(8)) {
+            OcrQueueFullException e = assertThrows(OcrQueueFullException.class, () -> scheduler.open(5));
+            assertTrue(e.getRetryAfterSeconds() >= 1);
+            assertEquals(1.0, registry.get("docloader.ocr.requests.rejected").counter().count());
+        }
+        // Closing the lane releases its admission
+        scheduler.open(5).close();
+    }
+
+    @Test
+    void admitsLargeDocumentWhenIdle() {
+        scheduler.open(1000).close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
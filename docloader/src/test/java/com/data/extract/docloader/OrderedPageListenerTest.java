@@ -0,0 +1,33 @@
+package com.data.extract.docloader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderedPageListenerTest {
+
+    @Test
+    void holdsBackPagesUntilEarlierOnesArrive() throws IOException {
+        List<Integer> delivered = new ArrayList<>();
+        OrderedPageListener listener = new OrderedPageListener(5, result -> delivered.add(result.getPageIndex()));
+
+        listener.onPage(page(2));
+        listener.onPage(page(1));
+        assertEquals(List.of(), delivered);
+
+        listener.onPage(page(0));
+        assertEquals(List.of(0, 1, 2), delivered);
+
+        listener.onPage(page(4));
+        listener.onPage(page(3));
+        assertEquals(List.of(0, 1, 2, 3, 4), delivered);
+    }
+
+    private static PageResult page(int index) {
+        return new PageResult(index, "Printed", "text " + index);
+    }
+}
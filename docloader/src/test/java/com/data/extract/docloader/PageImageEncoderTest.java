@@ -0,0 +1,63 @@
+package com.data.extract.docloader;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PageImageEncoderTest {
+
+    private final PageImageEncoder encoder = new PageImageEncoder();
+
+    @Test
+    void encodesLosslessPngAndReusesBuffer() throws IOException {
+        // The second image is larger than the initial buffer, forcing it to grow
+        BufferedImage small = noise(64, 48, 1);
+        BufferedImage large = noise(1600, 1200, 2);
+
+        assertSamePixels(small, decode(encoder.encodePng(small)));
+        assertSamePixels(large, decode(encoder.encodePng(large)));
+        assertSamePixels(small, decode(encoder.encodePng(small)));
+    }
+
+    @Test
+    void encodedBytesOutliveTheNextEncode() throws IOException {
+        BufferedImage first = noise(320, 240, 3);
+        BufferedImage second = noise(320, 240, 4);
+
+        ByteString firstPng = encoder.encodePng(first);
+        encoder.encodePng(second);
+
+        assertSamePixels(first, decode(firstPng));
+    }
+
+    private static BufferedImage decode(ByteString png) throws IOException {
+        return ImageIO.read(png.newInput());
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.data.extract.docloader;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagePipelineTest {
+
+    @Test
+    void returnsResultsInPageOrder() throws IOException {
+        List<PageResult> results = new PagePipeline(1, 2, 4).run(20,
+                pageIndex -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                image -> "Printed",
+                (pageIndex, image, type) -> {
+                    sleep((20 - pageIndex) % 5);
+                    return "text " + pageIndex;
+                });
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getPageIndex());
+            assertEquals("text " + i, results.get(i).getText());
+        }
+    }
+
+    @Test
+    void boundsPagesInFlight() throws IOException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        new PagePipeline(1, 1, 2).run(50,
+                pageIndex -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+                },
+                image -> "Printed",
+                (pageIndex, image, type) -> {
+                    sleep(1);
+                    inFlight.decrementAndGet();
+                    return "";
+                });
+
+        // 1 being rendered + 2 queues of 1 + 1 classifying + 2 in OCR
+        assertTrue(maxInFlight.get() <= 6, "max in flight was " + maxInFlight.get());
+    }
+
+    @Test
+    void classifiesTheClassificationRasterAndRecognizesTheFullOne() throws IOException {
+        List<PageResult> results = new PagePipeline(2, 1, 2, 2, null, null).run(new int[] { 3, 1 },
+                pageIndex -> new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB),
+                pageIndex -> new BufferedImage(pageIndex + 1, 1, BufferedImage.TYPE_INT_RGB),
+                image -> "width " + image.getWidth(),
+                (pageIndex, image, type) -> type + ", ocr width " + image.getWidth());
+
+        assertEquals(3, results.get(0).getPageIndex());
+        assertEquals("width 4, ocr width 100", results.get(0).getText());
+        assertEquals(1, results.get(1).getPageIndex());
+        assertEquals("width 2, ocr width 100", results.get(1).getText());
+    }
+
+    @Test
+    void streamsEveryPageOnceAsItCompletes() throws IOException {
+        List<Integer> streamed = new CopyOnWriteArrayList<>();
+        new PagePipeline(1, 1, 4).stream(new int[] { 0, 1, 2, 3, 4, 5, 6, 7 },
+                pageIndex -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                null,
+                image -> "Printed",
+                (pageIndex, image, type) -> {
+                    // Early pages are slowest, so they finish last
+                    sleep(8 - pageIndex);
+                    return "text " + pageIndex;
+                },
+                result -> streamed.add(result.getPageIndex()));
+
+        assertEquals(8, streamed.size());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), streamed.stream().sorted().toList());
+    }
+
+    @Test
+    void streamsInPageOrderOnTheCallingThreadWithBoundedBacklog() throws IOException {
+        Thread caller = Thread.currentThread();
+        AtomicInteger recognized = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger maxWaiting = new AtomicInteger();
+        List<Integer> streamed = new CopyOnWriteArrayList<>();
+
+        new PagePipeline(1, 1, 1, 3, null, null).stream(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+                pageIndex -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                null,
+                image -> "Printed",
+                (pageIndex, image, type) -> {
+                    // Even pages are slow, so odd ones finish early and wait for them
+                    sleep(pageIndex % 2 == 0 ? 6 : 0);
+                    maxWaiting.accumulateAndGet(recognized.incrementAndGet() - delivered.get(), Math::max);
+                    return "text " + pageIndex;
+                },
+                true,
+                result -> {
+                    assertEquals(caller, Thread.currentThread());
+                    // A slow client
+                    sleep(3);
+                    streamed.add(result.getPageIndex());
+                    delivered.incrementAndGet();
+                });
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), streamed);
+        assertTrue(maxWaiting.get() <= 3, "results waiting for the listener: " + maxWaiting.get());
+    }
+
+    @Test
+    void listenerFailureFailsTheStream() {
+        IOException e = assertThrows(IOException.class, () -> new PagePipeline(1, 1, 2).stream(new int[] { 0, 1, 2, 3 },
+                pageIndex -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                null,
+                image -> "Printed",
+                (pageIndex, image, type) -> "text " + pageIndex,
+                result -> {
+                    throw new IOException("client went away");
+                }));
+
+        assertEquals("client went away", e.getMessage());
+    }
+
+    @Test
+    void classifiesInBatchesAndKeepsTypesWithTheirPages() throws IOException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        PagePipeline.PageClassifier classifier = new PagePipeline.PageClassifier() {
+            @Override
+            public String classify(BufferedImage image) {
+                return image.getWidth() % 2 == 0 ? "Printed" : "Handwritten";
+            }
+
+            @Override
+            public List<String> classifyBatch(List<BufferedImage> images) {
+                batchSizes.add(images.size());
+                return PagePipeline.PageClassifier.super.classifyBatch(images);
+            }
+        };
+
+        List<PageResult> results = new PagePipeline(4, 1, 4, 2, null, null).run(30,
+                pageIndex -> {
+                    sleep(pageIndex % 3);
+                    return new BufferedImage(pageIndex + 1, 1, BufferedImage.TYPE_INT_RGB);
+                },
+                classifier,
+                (pageIndex, image, type) -> type);
+
+        for (PageResult result : results) {
+            assertEquals(result.getPageIndex() % 2 == 0 ? "Handwritten" : "Printed", result.getType());
+        }
+        assertEquals(30, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size >= 1 && size <= 4), "batches: " + batchSizes);
+    }
+
+    @Test
+    void propagatesStageFailureWithoutHanging() {
+        IOException e = assertThrows(IOException.class, () -> new PagePipeline(1, 1, 1).run(100,
+                pageIndex -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                image -> "Printed",
+                (pageIndex, image, type) -> {
+                    throw new IOException("boom on page " + pageIndex);
+                }));
+
+        assertEquals("Failed to process page 0", e.getCause().getMessage());
+        assertEquals("boom on page 0", e.getCause().getCause().getMessage());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.data.extract.docloader;
+
+import com.data.extract.docloader.benchmark.SyntheticPdf;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageRasterizerTest {
+
+    @Test
+    void choosesDpiFromPageSizeWithinBounds() throws IOException {
+        try (PDDocument letter = SyntheticPdf.printed(1);
+                PDDocument a3 = SyntheticPdf.printed(1, PDRectangle.A3)) {
+            // Letter is 8.5 x 11 in, so 8.5M pixels is just over 300 DPI
+            assertEquals(300f, new PageRasterizer(letter, 8_500_000, 150, 300).dpiFor(0));
+            // A3 at the same budget drops to roughly 212 DPI
+            float a3Dpi = new PageRasterizer(a3, 8_500_000, 150, 300).dpiFor(0);
+            assertTrue(a3Dpi > 205 && a3Dpi < 220, "A3 DPI was " + a3Dpi);
+            assertEquals(250f, new PageRasterizer(a3, 1_000_000, 250, 300).dpiFor(0));
+        }
+    }
+
+    @Test
+    void rendersClassificationRasterAtExactSize() throws IOException {
+        try (PDDocument document = SyntheticPdf.printed(1)) {
+            BufferedImage direct = new PageRasterizer(document, 8_500_000, 150, 300).renderAtSize(0, 600, 1000);
+
+            assertEquals(600, direct.getWidth());
+            assertEquals(1000, direct.getHeight());
+            assertEquals(BufferedImage.TYPE_INT_RGB, direct.getType());
+            assertEquals(0xFFFFFF, direct.getRGB(599, 999) & 0xFFFFFF);
+            assertTrue(darkPixels(direct) > 1000, "page text was not drawn");
+        }
+    }
+
+    @Test
+    void resamplerMatchesDirectRenderCloselyEnough() throws IOException {
+        try (PDDocument document = SyntheticPdf.printed(1)) {
+            PageRasterizer rasterizer = new PageRasterizer(document, 8_500_000, 150, 300);
+            BufferedImage resized = ImageResampler.resize(rasterizer.renderForOcr(0), 600, 1000);
+            BufferedImage direct = rasterizer.renderAtSize(0, 600, 1000);
+
+            assertEquals(600, resized.getWidth());
+            assertEquals(1000, resized.getHeight());
+            double ratio = (double) darkPixels(resized) / darkPixels(direct);
+            assertTrue(ratio > 0.5 && ratio < 2, "dark pixel ratio was " + ratio);
+        }
+    }
+
+    private static int darkPixels(BufferedImage image) {
+        int dark = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFF) < 160) {
+                    dark++;
+                }
+            }
+        }
+        return dark;
+    }
+}
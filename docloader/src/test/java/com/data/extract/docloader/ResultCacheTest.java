@@ -0,0 +1,91 @@
+package com.data.extract.docloader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesFromMemory() throws IOException {
+        ResultCache cache = new ResultCache(true, 2, 2, "", 0, new SimpleMeterRegistry());
+        cache.put(ResultCache.Level.PAGE, "a", "A");
+        cache.put(ResultCache.Level.PAGE, "b", "B");
+        cache.get(ResultCache.Level.PAGE, "a", 0);
+        cache.put(ResultCache.Level.PAGE, "c", "C");
+
+        assertEquals("A", cache.get(ResultCache.Level.PAGE, "a", 0));
+        assertNull(cache.get(ResultCache.Level.PAGE, "b", 0));
+        assertEquals("C", cache.get(ResultCache.Level.PAGE, "c", 0));
+        // Levels are independent
+        assertNull(cache.get(ResultCache.Level.DOCUMENT, "a", 0));
+    }
+
+    @Test
+    void reportsHitRatioAndBytesSaved() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResultCache cache = new ResultCache(true, 10, 10, "", 0, registry);
+        cache.get(ResultCache.Level.DOCUMENT, "doc", 1000);
+        cache.put(ResultCache.Level.DOCUMENT, "doc", "text");
+        cache.get(ResultCache.Level.DOCUMENT, "doc", 1000);
+        cache.get(ResultCache.Level.DOCUMENT, "doc", 1000);
+
+        assertEquals(2.0 / 3, registry.get("docloader.cache.hit.ratio").tag("level", "document").gauge().value(),
+                1e-9);
+        assertEquals(2000, registry.get("docloader.cache.bytes.saved").tag("level", "document")
+                .functionCounter().count());
+    }
+
+    @Test
+    void diskStoreSurvivesRestartAndEvictsOldestEntries() throws IOException {
+        ResultCache first = new ResultCache(true, 10, 10, dir.toString(), 10_000, new SimpleMeterRegistry());
+        first.put(ResultCache.Level.PAGE, "old", "x".repeat(4000));
+        first.put(ResultCache.Level.PAGE, "kept", "y".repeat(4000));
+
+        ResultCache restarted = new ResultCache(true, 10, 10, dir.toString(), 10_000, new SimpleMeterRegistry());
+        assertEquals(4000, restarted.get(ResultCache.Level.PAGE, "kept", 0).length());
+
+        // Third entry pushes the store over 10 KB; the least recently used one goes
+        restarted.put(ResultCache.Level.PAGE, "new", "z".repeat(4000));
+        ResultCache again = new ResultCache(true, 10, 10, dir.toString(), 10_000, new SimpleMeterRegistry());
+        assertNull(again.get(ResultCache.Level.PAGE, "old", 0));
+        assertEquals(4000, again.get(ResultCache.Level.PAGE, "new", 0).length());
+    }
+
+    @Test
+    void pageKeyDependsOnPixelsAndType() {
+        BufferedImage page = new BufferedImage(50, 80, BufferedImage.TYPE_INT_RGB);
+        String key = ResultCache.pageKey(page, "Printed");
+        assertEquals(key, ResultCache.pageKey(new BufferedImage(50, 80, BufferedImage.TYPE_INT_RGB), "Printed"));
+        assertNotEquals(key, ResultCache.pageKey(page, "Handwritten"));
+
+        page.setRGB(49, 79, 0x123456);
+        assertNotEquals(key, ResultCache.pageKey(page, "Printed"));
+    }
+
+    @Test
+    void digestsWholeUploadEvenIfReaderStopsEarly() throws IOException {
+        byte[] bytes = "%PDF-1.4 not really a pdf".getBytes();
+        ResultCache.DigestingInputStream in = ResultCache.digesting(new ByteArrayInputStream(bytes));
+        in.read(new byte[4]);
+        String partial = in.finish();
+
+        ResultCache.DigestingInputStream full = ResultCache.digesting(new ByteArrayInputStream(bytes));
+        assertEquals(full.finish(), partial);
+        assertEquals(bytes.length, in.bytesRead());
+        assertTrue(partial.matches("[0-9a-f]{64}"));
+    }
+}
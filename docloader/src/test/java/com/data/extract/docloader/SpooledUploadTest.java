@@ -0,0 +1,40 @@
+package com.data.extract.docloader;
+
+import com.data.extract.docloader.benchmark.SyntheticPdf;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpooledUploadTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void spoolsHashesLoadsAndDeletesTheUpload() throws IOException {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (PDDocument document = SyntheticPdf.printed(3)) {
+            document.save(pdf);
+        }
+        byte[] bytes = pdf.toByteArray();
+
+        try (SpooledUpload upload = SpooledUpload.spool(new ByteArrayInputStream(bytes), dir)) {
+            assertEquals(bytes.length, upload.getSize());
+            assertEquals(ResultCache.digesting(new ByteArrayInputStream(bytes)).finish(), upload.getDigest());
+            try (PDDocument document = upload.load(1 << 20)) {
+                assertEquals(3, document.getNumberOfPages());
+            }
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.data.extract.docloader;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TesseractEngineTest {
+
+    @Test
+    void graySubRegionIsPassedAsItsOwnPixels() {
+        BufferedImage page = new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < page.getHeight(); y++) {
+            for (int x = 0; x < page.getWidth(); x++) {
+                page.getRaster().setSample(x, y, 0, (x + 7 * y) & 0xFF);
+            }
+        }
+        BufferedImage crop = page.getSubimage(12, 9, 10, 5);
+
+        ByteBuffer pixels = TesseractEngine.grayPixels(crop);
+
+        assertEquals(10 * 5, pixels.remaining());
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 10; x++) {
+                assertEquals(page.getRaster().getSample(12 + x, 9 + y, 0), pixels.get(y * 10 + x) & 0xFF,
+                        "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void wholeGrayPageIsPassedRowByRow() {
+        BufferedImage page = new BufferedImage(6, 4, BufferedImage.TYPE_BYTE_GRAY);
+        page.getRaster().setSample(5, 3, 0, 200);
+
+        ByteBuffer pixels = TesseractEngine.grayPixels(page);
+
+        assertEquals(6 * 4, pixels.remaining());
+        assertEquals(200, pixels.get(3 * 6 + 5) & 0xFF);
+    }
+}
@@ -0,0 +1,41 @@
+package com.data.extract.docloader;
+
+import com.data.extract.docloader.benchmark.SyntheticPdf;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextLayerExtractorTest {
+
+    @Test
+    void keepsTextPagesAndLeavesImageOnlyPagesForOcr() throws IOException {
+        try (PDDocument document = SyntheticPdf.printed(2)) {
+            // A page without any text layer, as a scanned page would be
+            document.getPages().insertBefore(new PDPage(PDRectangle.LETTER), document.getPage(1));
+
+            String[] texts = new TextLayerExtractor(true, 50).extract(document);
+
+            assertNotNull(texts[0]);
+            assertTrue(texts[0].startsWith("Page 1"));
+            assertNull(texts[1]);
+            assertTrue(texts[2].startsWith("Page 2"));
+        }
+    }
+
+    @Test
+    void disabledSendsEveryPageToOcr() throws IOException {
+        try (PDDocument document = SyntheticPdf.printed(2)) {
+            String[] texts = new TextLayerExtractor(false, 50).extract(document);
+
+            assertNull(texts[0]);
+            assertNull(texts[1]);
+        }
+    }
+}
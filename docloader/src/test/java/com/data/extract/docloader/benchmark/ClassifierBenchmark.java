@@ -0,0 +1,109 @@
+package com.data.extract.docloader.benchmark;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import com.data.extract.docloader.HandwritingClassifier;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classification throughput on CPU: the previous per-page path (getRGB into
+ * a fresh float[1][3][1000][600] and a new tensor per page) against
+ * {@link HandwritingClassifier} with batch size 1 and N. Also reports GC
+ * count and time during each run.
+ *
+ * <pre>
+ * java -cp ... com.data.extract.docloader.benchmark.ClassifierBenchmark /path/to/model.onnx 64 8
+ * </pre>
+ */
+public class ClassifierBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: ClassifierBenchmark <model.onnx> [pages] [batchSize]");
+            return;
+        }
+        String modelPath = args[0];
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        List<BufferedImage> images = new ArrayList<>();
+        try (PDDocument document = SyntheticPdf.printed(pages)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int page = 0; page < pages; page++) {
+                images.add(renderer.renderImageWithDPI(page, 150));
+            }
+        }
+
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        try (OrtSession session = env.createSession(modelPath, new OrtSession.SessionOptions())) {
+            HandwritingClassifier single = new HandwritingClassifier(env, session, 1);
+            HandwritingClassifier batched = new HandwritingClassifier(env, session, batchSize);
+
+            // Warm up native code and JIT
+            legacy(env, session, images.subList(0, Math.min(4, pages)));
+            batched.classifyBatch(images.subList(0, Math.min(batchSize, pages)));
+
+            time("legacy per-page", pages, () -> legacy(env, session, images));
+            time("batch=1", pages, () -> images.forEach(single::classify));
+            time("batch=" + batched.getBatchSize(), pages, () -> {
+                for (int from = 0; from < pages; from += batchSize) {
+                    batched.classifyBatch(images.subList(from, Math.min(pages, from + batchSize)));
+                }
+            });
+        }
+    }
+
+    private static void time(String mode, int pages, HeapSampler.Body body) throws Exception {
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        HeapSampler.Measurement m = HeapSampler.measure(body);
+        System.out.printf("%-16s %8.1f pages/sec  %4d GCs  %5d ms in GC%n", mode, pages / m.seconds(),
+                gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    /** Copy of the classification code that ran once per page before batching. */
+    private static void legacy(OrtEnvironment env, OrtSession session, List<BufferedImage> images) throws Exception {
+        for (BufferedImage image : images) {
+            Image tmp = image.getScaledInstance(600, 1000, Image.SCALE_SMOOTH);
+            BufferedImage resized = new BufferedImage(600, 1000, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = resized.createGraphics();
+            g2d.drawImage(tmp, 0, 0, null);
+            g2d.dispose();
+
+            float[][][][] data = new float[1][3][1000][600];
+            for (int y = 0; y < 1000; y++) {
+                for (int x = 0; x < 600; x++) {
+                    int rgb = resized.getRGB(x, y);
+                    data[0][0][y][x] = ((rgb >> 16) & 0xFF) / 255.0f;
+                    data[0][1][y][x] = ((rgb >> 8) & 0xFF) / 255.0f;
+                    data[0][2][y][x] = (rgb & 0xFF) / 255.0f;
+                }
+            }
+            try (OnnxTensor input = OnnxTensor.createTensor(env, data)) {
+                String inputName = session.getInputNames().iterator().next();
+                session.run(Collections.singletonMap(inputName, input)).close();
+            }
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
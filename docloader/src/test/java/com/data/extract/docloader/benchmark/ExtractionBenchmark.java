@@ -0,0 +1,152 @@
+package com.data.extract.docloader.benchmark;
+
+import ai.onnxruntime.OrtSession;
+import com.data.extract.docloader.ExtractionMetrics;
+import com.data.extract.docloader.ExtractionStats;
+import com.data.extract.docloader.GeminiVisionClient;
+import com.data.extract.docloader.OcrScheduler;
+import com.data.extract.docloader.PageTypeClassifier;
+import com.data.extract.docloader.PdfImageTextExtractor;
+import com.data.extract.docloader.RegionOcr;
+import com.data.extract.docloader.ResultCache;
+import com.data.extract.docloader.TesseractEnginePool;
+import com.data.extract.docloader.TextLayerExtractor;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of {@link PdfImageTextExtractor} on generated printed
+ * (text layer), scanned and mixed PDFs. Everything from spooling the upload
+ * to the joined text runs for real, except that classification and
+ * Tesseract are replaced by the CPU-bound stand-ins in {@link StubStages} and
+ * Gemini by {@link GeminiStubServer} with a fixed latency, so the numbers are
+ * reproducible without native libraries, a model file or credentials.
+ *
+ * Reports pages/sec per corpus and p50/p99 per stage from the
+ * {@code docloader.stage} timers, after one unmeasured warm-up run.
+ *
+ * <pre>
+ * java -cp ... com.data.extract.docloader.benchmark.ExtractionBenchmark 30 3 300
+ * </pre>
+ * Arguments: pages per document, measured runs per corpus, stub Gemini latency in ms.
+ */
+public class ExtractionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 300;
+
+        Map<String, byte[]> corpora = Map.of(
+                "printed", bytes(SyntheticPdf.printed(pages)),
+                "scanned", bytes(SyntheticPdf.scannedText(pages)),
+                "mixed", bytes(SyntheticPdf.mixed(pages)));
+
+        try (GeminiStubServer stub = new GeminiStubServer(latency)) {
+            for (String corpus : List.of("printed", "scanned", "mixed")) {
+                byte[] pdf = corpora.get(corpus);
+                try (Setup warmUp = new Setup(stub)) {
+                    warmUp.extractor.extract(new ByteArrayInputStream(pdf), new ExtractionStats());
+                }
+                try (Setup setup = new Setup(stub)) {
+                    long start = System.nanoTime();
+                    ExtractionStats last = null;
+                    for (int run = 0; run < runs; run++) {
+                        last = new ExtractionStats();
+                        setup.extractor.extract(new ByteArrayInputStream(pdf), last);
+                    }
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%n%s: %d pages x %d runs, %.2f s, %.1f pages/sec, %d KB per document%n",
+                            corpus, pages, runs, seconds, pages * runs / seconds, pdf.length / 1024);
+                    System.out.println("  last run: " + last.summary().get("pagesByType"));
+                    report(setup.registry);
+                }
+            }
+        }
+    }
+
+    private static void report(SimpleMeterRegistry registry) {
+        System.out.printf("  %-11s %7s %10s %10s %11s%n", "stage", "calls", "p50 ms", "p99 ms", "total ms");
+        for (ExtractionStats.Stage stage : ExtractionStats.Stage.values()) {
+            Timer timer = registry.get("docloader.stage").tag("stage", stage.tag()).timer();
+            if (timer.count() == 0) {
+                continue;
+            }
+            double p50 = 0;
+            double p99 = 0;
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.5) {
+                    p50 = percentile.value(TimeUnit.MILLISECONDS);
+                } else if (percentile.percentile() == 0.99) {
+                    p99 = percentile.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            System.out.printf("  %-11s %7d %10.1f %10.1f %11.0f%n", stage.tag(), timer.count(), p50, p99,
+                    timer.totalTime(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static byte[] bytes(PDDocument document) throws IOException {
+        try (document) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /** The extractor and its collaborators, wired the way Spring wires them, on a fresh registry. */
+    private static class Setup implements AutoCloseable {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final OcrScheduler scheduler;
+        final GeminiVisionClient vision;
+        final PdfImageTextExtractor extractor;
+
+        Setup(GeminiStubServer stub) throws IOException {
+            int workers = Runtime.getRuntime().availableProcessors();
+            scheduler = new OcrScheduler(workers, 2000, 64, registry);
+            TesseractEnginePool tesseract = new TesseractEnginePool("", "eng", workers, false) {
+                @Override
+                public String recognize(BufferedImage image) {
+                    return StubStages.recognize(image);
+                }
+            };
+            PageTypeClassifier classifier = new PageTypeClassifier("", "", OrtSession.SessionOptions.OptLevel.ALL_OPT,
+                    0, 0, true, false, 4, 2, registry) {
+                @Override
+                public String classify(BufferedImage image) {
+                    return StubStages.classifyByInkColour(image);
+                }
+
+                @Override
+                public List<String> classifyBatch(List<BufferedImage> images) {
+                    return images.stream().map(StubStages::classifyByInkColour).toList();
+                }
+            };
+            vision = new GeminiVisionClient("project", "us-central1", "gemini-test", stub.endpoint(), 1000, 1000,
+                    4, 100, workers, 4, 500, 8000, 60_000, registry);
+            ExtractionMetrics metrics = new ExtractionMetrics(registry);
+            RegionOcr regionOcr = new RegionOcr(true, 24, 0.02, 0.06, 0.01, classifier, tesseract, vision, metrics,
+                    registry);
+            ResultCache cache = new ResultCache(false, 256, 4096, "", 0, registry);
+            extractor = new PdfImageTextExtractor(scheduler, tesseract, vision, regionOcr, classifier,
+                    new TextLayerExtractor(true, 50), cache, metrics, false, System.getProperty("java.io.tmpdir"),
+                    8_500_000, 150, 300, System.getProperty("java.io.tmpdir"), 64L * 1024 * 1024, registry);
+        }
+
+        @Override
+        public void close() {
+            vision.close();
+            scheduler.shutdown();
+        }
+    }
+}
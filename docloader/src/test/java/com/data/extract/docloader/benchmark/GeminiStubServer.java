@@ -0,0 +1,109 @@
+package com.data.extract.docloader.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Vertex AI generateContent REST endpoint. It
+ * "transcribes" each inline image by returning its bytes as text, so a test
+ * can check which reply went to which page. Packed requests get one
+ * {@code === PAGE n ===} section per image.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private final long latencyMillis;
+    private volatile boolean ignoreMarkers;
+
+    public GeminiStubServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    /** Value for {@code docloader.gemini.endpoint}. */
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    /** Answers the next {@code count} requests with HTTP 429. */
+    public void throttleNext(int count) {
+        throttleNext.set(count);
+    }
+
+    /** Makes packed replies leave out the page markers, as a misbehaving model would. */
+    public void ignoreMarkers(boolean ignore) {
+        this.ignoreMarkers = ignore;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            if (throttleNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                respond(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Resource exhausted\","
+                        + "\"status\":\"RESOURCE_EXHAUSTED\"}}");
+                return;
+            }
+            Thread.sleep(latencyMillis);
+
+            List<String> images = new ArrayList<>();
+            for (JsonNode part : request.path("contents").path(0).path("parts")) {
+                if (part.has("inlineData")) {
+                    images.add(new String(Base64.getDecoder().decode(part.path("inlineData").path("data").asText()),
+                            StandardCharsets.UTF_8));
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            if (images.size() == 1) {
+                text.append(images.get(0));
+            } else {
+                for (int i = 0; i < images.size(); i++) {
+                    if (!ignoreMarkers) {
+                        text.append("=== PAGE ").append(i + 1).append(" ===\n");
+                    }
+                    text.append(images.get(i)).append("\n");
+                }
+            }
+            respond(exchange, 200, objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                    .set("candidates", objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                            .set("content", objectMapper.createObjectNode().put("role", "model")
+                                    .set("parts", objectMapper.createArrayNode()
+                                            .add(objectMapper.createObjectNode().put("text", text.toString()))))))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.data.extract.docloader.benchmark;
+
+import com.data.extract.docloader.GeminiVisionClient;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.vertexai.Transport;
+import com.google.cloud.vertexai.VertexAI;
+import com.google.cloud.vertexai.api.PredictionServiceClient;
+import com.google.cloud.vertexai.api.PredictionServiceSettings;
+import com.google.cloud.vertexai.generativeai.ContentMaker;
+import com.google.cloud.vertexai.generativeai.GenerativeModel;
+import com.google.cloud.vertexai.generativeai.PartMaker;
+import com.google.cloud.vertexai.generativeai.ResponseHandler;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handwritten-page OCR against {@link GeminiStubServer} with a fixed reply
+ * latency: a new client per page with one request each (previous behaviour)
+ * against the shared {@link GeminiVisionClient}, which packs pages into
+ * fewer requests. Reports requests made, calls saved and mean latency per page.
+ *
+ * <pre>
+ * java -cp ... com.data.extract.docloader.benchmark.GeminiVisionBenchmark 64 8 300
+ * </pre>
+ * Arguments: pages, concurrent OCR workers, stub latency in ms.
+ */
+public class GeminiVisionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 300;
+
+        try (GeminiStubServer stub = new GeminiStubServer(latency)) {
+            run("client-per-page", stub, pages, workers, page -> {
+                PredictionServiceClient client = PredictionServiceClient.create(
+                        PredictionServiceSettings.newHttpJsonBuilder().setEndpoint(stub.endpoint())
+                                .setCredentialsProvider(NoCredentialsProvider.create()).build());
+                try (VertexAI vertexAI = new VertexAI.Builder().setProjectId("project").setLocation("us-central1")
+                        .setTransport(Transport.REST)
+                        .setCredentials(GoogleCredentials.create(new AccessToken("unused", null)))
+                        .setPredictionClientSupplier(() -> client).build()) {
+                    GenerativeModel model = new GenerativeModel("gemini-test", vertexAI);
+                    return ResponseHandler.getText(model.generateContent(ContentMaker.fromMultiModalData(
+                            "Transcribe", PartMaker.fromMimeTypeAndData("image/png", png(page)))));
+                }
+            });
+
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            GeminiVisionClient shared = new GeminiVisionClient("project", "us-central1", "gemini-test",
+                    stub.endpoint(), 1000, 1000, 4, 100, workers, 4, 500, 8000, 60_000, registry);
+            Object document = new Object();
+            try {
+                run("shared+packed", stub, pages, workers, page -> shared.transcribe(document, page, png(page)));
+                System.out.printf("  calls saved %.0f%n", registry.get("docloader.gemini.calls.saved").counter().count());
+            } finally {
+                shared.close();
+            }
+        }
+    }
+
+    private static void run(String mode, GeminiStubServer stub, int pages, int workers, PageCall call)
+            throws Exception {
+        int before = stub.requests();
+        AtomicLong totalNanos = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < pages; i++) {
+                int page = i;
+                futures.add(pool.submit(() -> {
+                    long pageStart = System.nanoTime();
+                    call.transcribe(page);
+                    totalNanos.addAndGet(System.nanoTime() - pageStart);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf("%-16s %4d requests for %d pages  %6.2f s total  %6.1f ms mean per page%n", mode,
+                stub.requests() - before, pages, (System.nanoTime() - start) / 1e9,
+                totalNanos.get() / 1e6 / pages);
+    }
+
+    private static ByteString png(int page) {
+        return ByteString.copyFromUtf8("page " + page);
+    }
+
+    @FunctionalInterface
+    private interface PageCall {
+        String transcribe(int page) throws Exception;
+    }
+}
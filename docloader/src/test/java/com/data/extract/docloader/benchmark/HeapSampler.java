@@ -0,0 +1,88 @@
+package com.data.extract.docloader.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * Measures wall time and heap of a block of code by polling the memory MX
+ * beans from a background thread. Besides peak used heap (which includes
+ * garbage not yet collected) it reports the peak heap retained after a
+ * collection, which is what shows whether live data grows with input size.
+ */
+public class HeapSampler {
+
+    @FunctionalInterface
+    public interface Body {
+        void run() throws Exception;
+    }
+
+    public static class Measurement {
+        private final long nanos;
+        private final long peakHeapBytes;
+        private final long peakRetainedBytes;
+
+        Measurement(long nanos, long peakHeapBytes, long peakRetainedBytes) {
+            this.nanos = nanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakRetainedBytes = peakRetainedBytes;
+        }
+
+        public double seconds() {
+            return nanos / 1_000_000_000.0;
+        }
+
+        public long peakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public long peakRetainedBytes() {
+            return peakRetainedBytes;
+        }
+    }
+
+    public static Measurement measure(Body body) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+                .toList();
+        long[] peak = { memory.getHeapMemoryUsage().getUsed(), retained(heapPools) };
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak[0] = Math.max(peak[0], memory.getHeapMemoryUsage().getUsed());
+                peak[1] = Math.max(peak[1], retained(heapPools));
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        long start = System.nanoTime();
+        try {
+            body.run();
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        return new Measurement(System.nanoTime() - start, peak[0], peak[1]);
+    }
+
+    private static long retained(List<MemoryPoolMXBean> heapPools) {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+}
@@ -0,0 +1,71 @@
+package com.data.extract.docloader.benchmark;
+
+import com.data.extract.docloader.PagePipeline;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Harness benchmark for {@link PagePipeline}: renders generated PDFs of
+ * increasing size through the staged pipeline and through the old
+ * "render everything, then OCR" approach, reporting pages/sec and peak heap.
+ *
+ * Classification and OCR are replaced by CPU-bound stubs so the numbers
+ * isolate the pipeline itself. Run {@link #main} from the IDE, or:
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -Xmx4g -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *      com.data.extract.docloader.benchmark.PagePipelineBenchmark 25 100 400
+ * </pre>
+ */
+public class PagePipelineBenchmark {
+
+    private static final float DPI = 300;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? new int[] { 25, 100, 400 }
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-10s %6s %12s %14s %17s%n", "mode", "pages", "pages/sec", "peak heap MB",
+                "peak retained MB");
+        for (int pages : sizes) {
+            try (PDDocument document = SyntheticPdf.printed(pages)) {
+                report("pipeline", pages, () -> runPipeline(document));
+            }
+            try (PDDocument document = SyntheticPdf.printed(pages)) {
+                report("render-all", pages, () -> runRenderAll(document));
+            }
+        }
+    }
+
+    private static void runPipeline(PDDocument document) throws Exception {
+        PDFRenderer renderer = new PDFRenderer(document);
+        PagePipeline.withDefaults().run(document.getNumberOfPages(),
+                pageIndex -> renderer.renderImageWithDPI(pageIndex, DPI),
+                StubStages::classify,
+                (pageIndex, image, type) -> StubStages.recognize(image));
+    }
+
+    /** Mirrors the previous implementation: every page is rendered before any OCR starts. */
+    private static void runRenderAll(PDDocument document) throws Exception {
+        PDFRenderer renderer = new PDFRenderer(document);
+        List<BufferedImage> images = new ArrayList<>();
+        for (int page = 0; page < document.getNumberOfPages(); page++) {
+            images.add(renderer.renderImageWithDPI(page, DPI));
+        }
+        images.parallelStream().forEach(image -> {
+            StubStages.classify(image);
+            StubStages.recognize(image);
+        });
+    }
+
+    private static void report(String mode, int pages, HeapSampler.Body body) throws Exception {
+        HeapSampler.Measurement m = HeapSampler.measure(body);
+        System.out.printf("%-10s %6d %12.1f %14d %17d%n", mode, pages, pages / m.seconds(),
+                m.peakHeapBytes() >> 20, m.peakRetainedBytes() >> 20);
+    }
+}
@@ -0,0 +1,87 @@
+package com.data.extract.docloader.benchmark;
+
+import com.data.extract.docloader.ImageResampler;
+import com.data.extract.docloader.PageRasterizer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+/**
+ * Per-page cost of producing the OCR raster and the 600x1000 classifier
+ * raster, on Letter and A3 pages:
+ * <ul>
+ * <li>fixed 300 DPI render, then {@code getScaledInstance(SCALE_SMOOTH)} (previous path)</li>
+ * <li>adaptive DPI render, then {@link ImageResampler}</li>
+ * <li>adaptive DPI render, plus a direct render at the classifier size (current path)</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp ... com.data.extract.docloader.benchmark.RenderBenchmark 20
+ * </pre>
+ */
+public class RenderBenchmark {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        for (PDRectangle size : new PDRectangle[] { PDRectangle.LETTER, PDRectangle.A3 }) {
+            try (PDDocument document = SyntheticPdf.printed(pages, size)) {
+                PDFRenderer renderer = new PDFRenderer(document);
+                PageRasterizer rasterizer = new PageRasterizer(document, 8_500_000, 150, 300);
+                String label = size == PDRectangle.LETTER ? "Letter" : "A3";
+                System.out.printf("%s pages, adaptive OCR DPI %.0f%n", label, rasterizer.dpiFor(0));
+
+                // Warm up JIT and font caches
+                legacy(renderer, 0);
+                current(rasterizer, 0);
+
+                double legacy = perPage(pages, page -> legacy(renderer, page));
+                double resampled = perPage(pages, page -> {
+                    ImageResampler.resize(rasterizer.renderForOcr(page), WIDTH, HEIGHT);
+                });
+                double current = perPage(pages, page -> current(rasterizer, page));
+                print("300dpi+getScaledInstance", legacy, legacy);
+                print("adaptive+resampler", resampled, legacy);
+                print("adaptive+direct render", current, legacy);
+            }
+        }
+    }
+
+    private static void legacy(PDFRenderer renderer, int page) throws Exception {
+        BufferedImage full = renderer.renderImageWithDPI(page, 300);
+        Image tmp = full.getScaledInstance(WIDTH, HEIGHT, Image.SCALE_SMOOTH);
+        BufferedImage resized = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.drawImage(tmp, 0, 0, null);
+        g2d.dispose();
+    }
+
+    private static void current(PageRasterizer rasterizer, int page) throws Exception {
+        rasterizer.renderAtSize(page, WIDTH, HEIGHT);
+        rasterizer.renderForOcr(page);
+    }
+
+    private static double perPage(int pages, PageBody body) throws Exception {
+        long start = System.nanoTime();
+        for (int page = 0; page < pages; page++) {
+            body.run(page);
+        }
+        return (System.nanoTime() - start) / 1e6 / pages;
+    }
+
+    private static void print(String mode, double millis, double baseline) {
+        System.out.printf("  %-26s %7.1f ms/page  saves %6.1f ms/page%n", mode, millis, baseline - millis);
+    }
+
+    @FunctionalInterface
+    private interface PageBody {
+        void run(int page) throws Exception;
+    }
+}
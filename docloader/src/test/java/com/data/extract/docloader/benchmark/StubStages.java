@@ -0,0 +1,50 @@
+package com.data.extract.docloader.benchmark;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * CPU-bound stand-ins for the ONNX classifier and the OCR engines, so the
+ * benchmarks run without native Tesseract, a model file or cloud credentials.
+ */
+public class StubStages {
+
+    public static String classify(BufferedImage image) {
+        return darkPixels(image, 4) % 2 == 0 ? "Printed" : "Handwritten";
+    }
+
+    /**
+     * Deterministic stand-in for the real model on {@link SyntheticPdf}
+     * pages, whose "handwriting" is drawn in blue ink and print in black.
+     */
+    public static String classifyByInkColour(BufferedImage image) {
+        long blue = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                if (b > r + 60 && b > g + 60) {
+                    blue++;
+                }
+            }
+        }
+        return blue * 1000 > (long) image.getWidth() * image.getHeight() ? "Handwritten" : "Printed";
+    }
+
+    public static String recognize(BufferedImage image) {
+        return "dark pixels: " + darkPixels(image, 1);
+    }
+
+    private static long darkPixels(BufferedImage image, int step) {
+        long dark = 0;
+        for (int y = 0; y < image.getHeight(); y += step) {
+            for (int x = 0; x < image.getWidth(); x += step) {
+                if ((image.getRGB(x, y) & 0xFF) < 128) {
+                    dark++;
+                }
+            }
+        }
+        return dark;
+    }
+}
@@ -0,0 +1,166 @@
+package com.data.extract.docloader.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates throw-away PDFs for the benchmarks.
+ */
+public class SyntheticPdf {
+
+    private static final String LINE = "The quick brown fox jumps over the lazy dog 0123456789";
+
+    /** A document of Letter pages that carry a real text layer. */
+    public static PDDocument printed(int pages) throws IOException {
+        return printed(pages, PDRectangle.LETTER);
+    }
+
+    public static PDDocument printed(int pages, PDRectangle size) throws IOException {
+        PDDocument document = new PDDocument();
+        for (int i = 0; i < pages; i++) {
+            PDPage page = new PDPage(size);
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 11);
+                content.setLeading(14);
+                content.newLineAtOffset(50, size.getHeight() - 52);
+                content.showText("Page " + (i + 1));
+                for (int line = 0; line < 48; line++) {
+                    content.newLine();
+                    content.showText(LINE);
+                }
+                content.endText();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Writes a scan-like PDF of about {@code megabytes} MB straight to
+     * {@code file}: every page is one full-page image of incompressible noise.
+     * The document is built on scratch files, so generating it needs little heap.
+     */
+    public static void scanned(Path file, int megabytes) throws IOException {
+        // 1400 x 1800 RGB noise stays at about 7.5 MB per page after Flate
+        int width = 1400;
+        int height = 1800;
+        int pages = Math.max(1, (int) Math.ceil(megabytes / 7.5));
+        BufferedImage noise = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            for (int i = 0; i < pages; i++) {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        noise.setRGB(x, y, random.nextInt(0xFFFFFF));
+                    }
+                }
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                PDImageXObject image = LosslessFactory.createFromImage(document, noise);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(image, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+                }
+            }
+            document.save(file.toFile());
+        }
+    }
+
+    /**
+     * Image-only pages of printed text, as a scanner would produce them: there
+     * is no text layer, so every page goes through classification and OCR.
+     */
+    public static PDDocument scannedText(int pages) throws IOException {
+        PDDocument document = new PDDocument();
+        for (int i = 0; i < pages; i++) {
+            addScan(document, printedScan(i, 48, false));
+        }
+        return document;
+    }
+
+    /**
+     * Text-layer pages, scanned printed pages and filled-in forms (a printed
+     * block above blue, handwriting-like strokes) in turn.
+     */
+    public static PDDocument mixed(int pages) throws IOException {
+        PDDocument document = new PDDocument();
+        try (PDDocument printed = printed(pages)) {
+            for (int i = 0; i < pages; i++) {
+                switch (i % 3) {
+                    case 0 -> document.importPage(printed.getPage(i));
+                    case 1 -> addScan(document, printedScan(i, 48, false));
+                    default -> addScan(document, printedScan(i, 12, true));
+                }
+            }
+            // Imported pages share resources with the source, so save before it closes
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            document.save(bytes);
+            document.close();
+            return PDDocument.load(bytes.toByteArray());
+        }
+    }
+
+    /** A Letter page at 150 DPI with {@code lines} of text, optionally followed by scribbles. */
+    private static BufferedImage printedScan(int index, int lines, boolean handwriting) {
+        int width = 1275;
+        int height = 1650;
+        BufferedImage scan = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scan.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 23));
+            g.drawString("Page " + (index + 1), 104, 110);
+            for (int line = 0; line < lines; line++) {
+                g.drawString(LINE, 104, 110 + (line + 1) * 29);
+            }
+            if (handwriting) {
+                Random random = new Random(index);
+                g.setColor(new Color(20, 30, 170));
+                g.setStroke(new BasicStroke(7, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                for (int y = 800; y < 1450; y += 110) {
+                    Path2D stroke = new Path2D.Double();
+                    stroke.moveTo(120, y);
+                    for (int x = 120; x < 1100; x += 18) {
+                        stroke.quadTo(x + 9, y - 40 + random.nextInt(80), x + 18, y + random.nextInt(20) - 10);
+                    }
+                    g.draw(stroke);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return scan;
+    }
+
+    private static void addScan(PDDocument document, BufferedImage scan) throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDImageXObject image = JPEGFactory.createFromImage(document, scan, 0.85f);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(image, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.data.extract.docloader.benchmark;
+
+import com.data.extract.docloader.TesseractEnginePool;
+import net.sourceforge.tess4j.Tesseract;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares per-page OCR latency of a new {@link Tesseract} per page (the old
+ * printed-page path) against a warm {@link TesseractEnginePool}, on the same
+ * pre-rendered printed pages. Needs a native Tesseract install.
+ *
+ * <pre>
+ * java -cp ... com.data.extract.docloader.benchmark.TesseractPoolBenchmark /usr/share/tesseract-ocr/5/tessdata 20
+ * </pre>
+ */
+public class TesseractPoolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String datapath = args.length > 0 ? args[0] : System.getenv().getOrDefault("TESSDATA_PREFIX", "tessdata");
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<BufferedImage> images = new ArrayList<>();
+        try (PDDocument document = SyntheticPdf.printed(pages)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int page = 0; page < pages; page++) {
+                images.add(renderer.renderImageWithDPI(page, 300));
+            }
+        }
+
+        long[] perPage = new long[pages];
+        try {
+            for (int i = 0; i < pages; i++) {
+                long start = System.nanoTime();
+                Tesseract tesseract = new Tesseract();
+                tesseract.setDatapath(datapath);
+                tesseract.setLanguage("eng");
+                tesseract.doOCR(images.get(i));
+                perPage[i] = System.nanoTime() - start;
+            }
+        } catch (Throwable t) {
+            System.err.println("Tesseract is not available (" + t + "); install it and pass the tessdata path.");
+            return;
+        }
+        print("create-per-page", perPage);
+
+        TesseractEnginePool pool = new TesseractEnginePool(datapath, "eng", 1, true);
+        pool.warmUp();
+        try {
+            for (int i = 0; i < pages; i++) {
+                long start = System.nanoTime();
+                pool.recognize(images.get(i));
+                perPage[i] = System.nanoTime() - start;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        print("pooled", perPage);
+    }
+
+    private static void print(String mode, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-16s mean %7.1f ms  p50 %7.1f ms  p99 %7.1f ms%n", mode,
+                Arrays.stream(sorted).average().orElse(0) / 1e6,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)] / 1e6);
+    }
+}
@@ -0,0 +1,113 @@
+package com.data.extract.docloader.benchmark;
+
+import com.data.extract.docloader.SpooledUpload;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for upload handling: several concurrent "requests" each open a
+ * large scan-like PDF and read every page's image data, once through
+ * {@code PDDocument.load(InputStream)} (previous behaviour, whole upload on the
+ * heap) and once through {@link SpooledUpload} with a capped main-memory
+ * budget. Reports peak retained heap per file size; with spooling it should
+ * stay flat as files grow.
+ *
+ * <pre>
+ * java -Xmx3g -cp ... com.data.extract.docloader.benchmark.UploadHeapLoadTest 3 50 150 300
+ * </pre>
+ * The first argument is the number of concurrent requests, the rest are file sizes in MB.
+ */
+public class UploadHeapLoadTest {
+
+    private static final long MAX_MAIN_MEMORY = 16L << 20;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] sizes = args.length > 1
+                ? java.util.Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 50, 150, 300 };
+
+        Path dir = Files.createTempDirectory("docloader-load-test");
+        System.out.printf("%-10s %8s %12s %18s%n", "mode", "file MB", "seconds", "peak retained MB");
+        for (int megabytes : sizes) {
+            Path pdf = dir.resolve(megabytes + "mb.pdf");
+            SyntheticPdf.scanned(pdf, megabytes);
+            long fileMb = Files.size(pdf) >> 20;
+            report("in-heap", fileMb, concurrency, () -> {
+                try (InputStream in = Files.newInputStream(pdf); PDDocument document = PDDocument.load(in)) {
+                    readImages(document);
+                }
+            });
+            report("spooled", fileMb, concurrency, () -> {
+                try (InputStream in = Files.newInputStream(pdf);
+                        SpooledUpload upload = SpooledUpload.spool(in, dir)) {
+                    try (PDDocument document = upload.load(MAX_MAIN_MEMORY)) {
+                        readImages(document);
+                    }
+                }
+            });
+            Files.delete(pdf);
+        }
+        Files.delete(dir);
+    }
+
+    private static void report(String mode, long fileMb, int concurrency, HeapSampler.Body request)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            HeapSampler.Measurement m = HeapSampler.measure(() -> {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < concurrency; i++) {
+                    futures.add(pool.submit(() -> {
+                        request.run();
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            });
+            System.out.printf("%-10s %8d %12.1f %18d%n", mode, fileMb, m.seconds(), m.peakRetainedBytes() >> 20);
+        } catch (Exception | OutOfMemoryError e) {
+            System.out.printf("%-10s %8d %12s %18s%n", mode, fileMb, "-", "failed: " + rootCause(e));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Streams every image on every page, as rendering would, without paying for rasterisation. */
+    private static void readImages(PDDocument document) throws Exception {
+        for (PDPage page : document.getPages()) {
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject instanceof PDImageXObject image) {
+                    try (InputStream data = image.createInputStream()) {
+                        data.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+            }
+        }
+    }
+
+    private static String rootCause(Throwable t) {
+        while (t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t.getClass().getSimpleName();
+    }
+}